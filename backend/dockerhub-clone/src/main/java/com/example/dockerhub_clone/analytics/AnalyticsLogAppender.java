@@ -0,0 +1,58 @@
+package com.example.dockerhub_clone.analytics;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logback appender that hands the application's own log events to {@link ApplicationLogShipper} through an
+ * {@link MpscRingBuffer}.
+ * <p>
+ * Logging threads only freeze the event's deferred state (formatted message, MDC) and enqueue it; conversion
+ * and serialisation happen on the shipper's thread. The appender never blocks: when the buffer is full the
+ * event is counted as dropped. Events from excluded loggers, such as the analytics package and HTTP
+ * clients, are skipped so shipping cannot log its way into a feedback loop.
+ */
+public class AnalyticsLogAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private final MpscRingBuffer<ILoggingEvent> buffer;
+    private final String[] excludedLoggers;
+    private final LongAdder dropped = new LongAdder();
+
+    public AnalyticsLogAppender(MpscRingBuffer<ILoggingEvent> buffer, List<String> excludedLoggers) {
+        this.buffer = buffer;
+        this.excludedLoggers = excludedLoggers.toArray(String[]::new);
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (isExcluded(event.getLoggerName())) {
+            return;
+        }
+        event.prepareForDeferredProcessing();
+        if (!buffer.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Returns and resets the number of events dropped because the buffer was full.
+     */
+    public long drainDropped() {
+        return dropped.sumThenReset();
+    }
+
+    private boolean isExcluded(String loggerName) {
+        if (loggerName == null) {
+            return false;
+        }
+        for (String excluded : excludedLoggers) {
+            if (loggerName.startsWith(excluded)
+                    && (loggerName.length() == excluded.length() || loggerName.charAt(excluded.length()) == '.')) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
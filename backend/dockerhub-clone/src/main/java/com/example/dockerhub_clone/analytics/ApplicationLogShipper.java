@@ -0,0 +1,252 @@
+package com.example.dockerhub_clone.analytics;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ships the application's own log events to Elasticsearch without the round trip through a log file.
+ * <p>
+ * An {@link AnalyticsLogAppender} on the root logger queues events in a lock-free ring buffer; a single
+ * daemon thread drains it, converts the events into {@link LogEvent}s and fills payload writers from the
+ * {@link BulkDispatcher}, so they share the bulk sizing, retries, concurrency limit and spool of file
+ * ingestion, the same {@link IngestRuleSet} and the same storm collapsing; a collapsed summary is released
+ * once its window has ended. A batch is sealed once it reaches the bulk size or byte target, or
+ * {@link LogIngestionProperties#getAppenderFlushInterval()} after its first event. Every event gets a
+ * unique id, so a retried request cannot index it twice.
+ * <p>
+ * Events still buffered when the application stops are lost; files remain the durable path, and
+ * {@link LogIngestionProperties#getPaths()} should no longer list the application's own log file while the
+ * appender is enabled.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ApplicationLogShipper {
+
+    private static final String APPENDER_NAME = "ANALYTICS";
+    private static final int IDLE_SPINS = 64;
+    private static final long MIN_IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final Duration DROP_REPORT_INTERVAL = Duration.ofMinutes(1);
+
+    private final LogIngestionProperties ingestionProperties;
+    private final ElasticsearchProperties elasticsearchProperties;
+    private final BulkShipper bulkShipper;
+    private final BulkDispatcher bulkDispatcher;
+    private final IngestRuleSet ingestRuleSet;
+
+    private MpscRingBuffer<ILoggingEvent> buffer;
+    private AnalyticsLogAppender appender;
+    private Thread drainThread;
+    private volatile boolean running;
+    private String pid;
+    private String idPrefix;
+    private long sequence;
+
+    // drain thread state
+    private final Consumer<LogEvent> emitter = this::emit;
+    private LogStormCollapser collapser;
+    private BulkPayloadWriter payload;
+    private long firstEventNanos;
+
+    @PostConstruct
+    void start() {
+        if (!ingestionProperties.isEnabled() || !ingestionProperties.isAppenderEnabled()) {
+            return;
+        }
+        if (!elasticsearchProperties.isEnabled() || !elasticsearchProperties.isIngestEnabled()) {
+            return;
+        }
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            log.warn("Logback is not the active logging backend; application logs are not shipped in-process");
+            return;
+        }
+
+        long processId = ProcessHandle.current().pid();
+        pid = Long.toString(processId);
+        idPrefix = LogIngestionService.documentIdPrefix(
+                ingestionProperties.getAppenderSource(), processId + "@" + System.currentTimeMillis(), null);
+        buffer = new MpscRingBuffer<>(Math.max(1, ingestionProperties.getAppenderBufferSize()));
+        collapser = LogIngestionService.newCollapser(ingestionProperties);
+        running = true;
+        drainThread = new Thread(this::drainLoop, "log-appender-drain");
+        drainThread.setDaemon(true);
+        drainThread.start();
+
+        appender = new AnalyticsLogAppender(buffer, ingestionProperties.getAppenderExcludedLoggers());
+        appender.setName(APPENDER_NAME);
+        appender.setContext(context);
+        appender.start();
+        context.getLogger(Logger.ROOT_LOGGER_NAME).addAppender(appender);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (appender == null) {
+            return;
+        }
+        LoggerContext context = (LoggerContext) appender.getContext();
+        context.getLogger(Logger.ROOT_LOGGER_NAME).detachAppender(appender);
+        appender.stop();
+        running = false;
+        LockSupport.unpark(drainThread);
+        drainThread.join(TimeUnit.SECONDS.toMillis(5));
+        appender = null;
+    }
+
+    /**
+     * Consumer side of the ring buffer. After {@link #stop()} it ships what is left and exits. A failure on one
+     * event is logged and the loop carries on; only the batch being filled at the time is lost.
+     */
+    private void drainLoop() {
+        LogEvent event = new LogEvent();
+        long lastDropReport = System.nanoTime();
+        long flushNanos = ingestionProperties.getAppenderFlushInterval().toNanos();
+        long maxParkNanos = Math.max(MIN_IDLE_PARK_NANOS, Math.min(MAX_IDLE_PARK_NANOS, flushNanos));
+        int idleRounds = 0;
+        try {
+            while (true) {
+                try {
+                    ILoggingEvent next = buffer.poll();
+                    if (next == null) {
+                        boolean stopping = !running;
+                        if (collapser != null && collapser.hasPending()) {
+                            if (payload == null) {
+                                payload = bulkDispatcher.acquire();
+                            }
+                            if (stopping) {
+                                collapser.flush(emitter);
+                            } else {
+                                collapser.expire(Instant.now(), emitter);
+                            }
+                        }
+                        if (payload != null && !payload.isEmpty()
+                                && (stopping || System.nanoTime() - firstEventNanos >= flushNanos)) {
+                            BulkPayloadWriter full = payload;
+                            payload = null;
+                            dispatch(full);
+                        } else if (stopping) {
+                            return;
+                        } else {
+                            idle(idleRounds++, maxParkNanos);
+                        }
+                        if (System.nanoTime() - lastDropReport >= DROP_REPORT_INTERVAL.toNanos()) {
+                            reportDropped();
+                            lastDropReport = System.nanoTime();
+                        }
+                        continue;
+                    }
+                    idleRounds = 0;
+
+                    convert(next, event);
+                    if (!ingestRuleSet.accept(event)) {
+                        continue;
+                    }
+                    if (payload == null) {
+                        payload = bulkDispatcher.acquire();
+                    }
+                    if (collapser != null) {
+                        collapser.accept(event, emitter);
+                    } else {
+                        emit(event);
+                    }
+                    if (payload.size() >= ingestionProperties.getBulkSize()
+                            || payload.byteSize() >= bulkShipper.targetBatchBytes()) {
+                        BulkPayloadWriter full = payload;
+                        payload = null;
+                        dispatch(full);
+                    }
+                } catch (RuntimeException exception) {
+                    // a half-written document would corrupt the whole request, so the batch is given up
+                    int lost = payload != null ? payload.size() : 0;
+                    if (payload != null) {
+                        bulkDispatcher.release(payload);
+                        payload = null;
+                    }
+                    log.error("Failed to ship an application log event; dropped it and {} buffered events",
+                            lost, exception);
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (payload != null) {
+                bulkDispatcher.release(payload);
+            }
+            reportDropped();
+        }
+    }
+
+    private void emit(LogEvent event) {
+        if (payload.isEmpty()) {
+            firstEventNanos = System.nanoTime();
+        }
+        payload.add(event);
+    }
+
+    /**
+     * Backs off progressively while the buffer stays empty: a short spin catches the next event of a burst,
+     * then the thread parks for twice as long each round, up to {@code maxParkNanos}.
+     */
+    private static void idle(int idleRounds, long maxParkNanos) {
+        if (idleRounds < IDLE_SPINS) {
+            Thread.onSpinWait();
+            return;
+        }
+        int doublings = Math.min(idleRounds - IDLE_SPINS, 30);
+        LockSupport.parkNanos(Math.min(maxParkNanos, MIN_IDLE_PARK_NANOS << doublings));
+    }
+
+    private void dispatch(BulkPayloadWriter sealed) {
+        int documents = sealed.size();
+        bulkDispatcher.dispatch(sealed, delivered -> {
+            if (!delivered) {
+                log.warn("Failed to ship or spool {} application log events; they are dropped", documents);
+            }
+        });
+    }
+
+    private void convert(ILoggingEvent source, LogEvent event) {
+        event.reset();
+        event.setTimestamp(source.getInstant());
+        event.setLevel(source.getLevel().toString());
+        event.setMessage(source.getFormattedMessage());
+        event.setRaw(event.getMessage());
+        event.setSource(ingestionProperties.getAppenderSource());
+        event.setLogger(source.getLoggerName());
+        event.setThread(source.getThreadName());
+        event.setPid(pid);
+        Map<String, String> mdc = source.getMDCPropertyMap();
+        if (mdc != null) {
+            event.setRequestId(mdc.get(ingestionProperties.getAppenderRequestIdKey()));
+        }
+        IThrowableProxy throwable = source.getThrowableProxy();
+        if (throwable != null) {
+            event.setStackTrace(ThrowableProxyUtil.asString(throwable));
+        }
+        event.setId(idPrefix + sequence++);
+    }
+
+    private void reportDropped() {
+        long dropped = appender != null ? appender.drainDropped() : 0L;
+        if (dropped > 0) {
+            log.warn("Dropped {} application log events because the appender buffer of {} was full",
+                    dropped, buffer.capacity());
+        }
+    }
+}
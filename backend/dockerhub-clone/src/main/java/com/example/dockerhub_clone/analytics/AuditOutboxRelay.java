@@ -0,0 +1,178 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.example.dockerhub_clone.model.AuditOutboxEntry;
+import com.example.dockerhub_clone.repository.AuditOutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * Relays audit events from the {@code audit_outbox} table to Elasticsearch.
+ * <p>
+ * Outbox rows are written in the same transaction as the audited change, so an event exists exactly when the
+ * change committed. Every {@link ElasticsearchProperties#getOutboxPollInterval()} the relay reads unshipped
+ * rows in id order, {@link ElasticsearchProperties#getOutboxBatchSize()} at a time, ships each page as
+ * {@code _bulk} requests and marks the rows shipped only once Elasticsearch accepted them. A failed request
+ * ends the pass and the rows are read again on the next one; documents keep their id, so a row shipped twice
+ * overwrites its document instead of duplicating it. Delivery is therefore at least once.
+ * <p>
+ * With several replicas only the node elected by {@link IngestionLeaderElection} relays.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditOutboxRelay {
+
+    private static final Duration CLEANUP_INTERVAL = Duration.ofMinutes(10);
+
+    private final ElasticsearchProperties elasticsearchProperties;
+    private final AuditOutboxRepository outboxRepository;
+    private final BulkShipper bulkShipper;
+    private final IngestionLeaderElection leaderElection;
+    private final ObjectMapper objectMapper;
+
+    private ScheduledExecutorService relayExecutor;
+    private BulkPayloadWriter payload;
+    private long lastCleanupNanos;
+
+    @PostConstruct
+    void start() {
+        if (!elasticsearchProperties.isEnabled()) {
+            return;
+        }
+        relayExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audit-outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = elasticsearchProperties.getOutboxPollInterval().toMillis();
+        relayExecutor.scheduleWithFixedDelay(this::relaySafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (relayExecutor == null) {
+            return;
+        }
+        relayExecutor.shutdown();
+        if (!relayExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            relayExecutor.shutdownNow();
+        }
+    }
+
+    private void relaySafely() {
+        try {
+            relay();
+        } catch (DataAccessException exception) {
+            log.warn("Failed to read or update the audit outbox: {}", exception.getMessage());
+        } catch (RuntimeException exception) {
+            log.error("Unexpected failure while relaying audit events", exception);
+        }
+    }
+
+    /**
+     * Ships every unshipped row, unless Elasticsearch fails first. Every pass starts over from the lowest id,
+     * so a row whose transaction committed after rows with higher ids is picked up on the next pass.
+     *
+     * @return number of rows marked shipped
+     */
+    int relay() {
+        if (!leaderElection.isLeader()) {
+            return 0;
+        }
+        if (payload == null) {
+            payload = new BulkPayloadWriter(objectMapper.getFactory(), elasticsearchProperties.getIndex());
+        }
+        payload.reset();
+
+        int relayed = 0;
+        long afterId = 0L;
+        int batchSize = Math.max(1, elasticsearchProperties.getOutboxBatchSize());
+        LogEvent event = new LogEvent();
+        while (true) {
+            List<AuditOutboxEntry> page = outboxRepository.findByShippedAtIsNullAndIdGreaterThanOrderByIdAsc(
+                    afterId, PageRequest.of(0, batchSize));
+            if (page.isEmpty()) {
+                break;
+            }
+
+            List<Long> pending = new ArrayList<>(page.size());
+            for (AuditOutboxEntry entry : page) {
+                toEvent(entry, event);
+                payload.add(event);
+                pending.add(entry.getId());
+                if (payload.byteSize() >= bulkShipper.targetBatchBytes()) {
+                    int shipped = ship(pending);
+                    if (shipped < 0) {
+                        return relayed;
+                    }
+                    relayed += shipped;
+                }
+            }
+            int shipped = ship(pending);
+            if (shipped < 0) {
+                return relayed;
+            }
+            relayed += shipped;
+            afterId = page.get(page.size() - 1).getId();
+            if (page.size() < batchSize) {
+                break;
+            }
+        }
+        cleanUp();
+        return relayed;
+    }
+
+    /**
+     * Ships the payload and marks its rows shipped.
+     *
+     * @return number of rows marked shipped, or -1 if Elasticsearch did not accept them all
+     */
+    private int ship(List<Long> pending) {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        if (!bulkShipper.ship(payload)) {
+            payload.reset();
+            log.warn("Elasticsearch did not accept {} audit events; they are retried on the next pass", pending.size());
+            return -1;
+        }
+        int shipped = outboxRepository.markShipped(pending, Instant.now());
+        pending.clear();
+        return shipped;
+    }
+
+    private void cleanUp() {
+        if (lastCleanupNanos != 0L && System.nanoTime() - lastCleanupNanos < CLEANUP_INTERVAL.toNanos()) {
+            return;
+        }
+        lastCleanupNanos = System.nanoTime();
+        int deleted = outboxRepository.deleteShippedBefore(
+                Instant.now().minus(elasticsearchProperties.getOutboxRetention()));
+        if (deleted > 0) {
+            log.debug("Deleted {} shipped audit outbox rows", deleted);
+        }
+    }
+
+    private static void toEvent(AuditOutboxEntry entry, LogEvent event) {
+        event.reset();
+        event.setId(entry.getDocumentId());
+        event.setTimestamp(entry.getOccurredAt());
+        event.setLevel(entry.getLevel());
+        event.setMessage(entry.getMessage());
+        event.setRaw(entry.getRaw());
+        event.setSource(entry.getSource());
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shipper stage of the ingestion pipeline: runs up to {@link LogIngestionProperties#getBulkConcurrency()}
+ * bulk requests at the same time.
+ * <p>
+ * Payload buffers are handed out by {@link #acquire()} from a fixed pool of twice that many writers, one
+ * set being shipped while the other is filled. When every writer is taken, {@link #acquire()} blocks, which
+ * stalls the parser and, through its bounded queue, the file reader: nothing upstream can run further
+ * ahead of Elasticsearch than the pool allows.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BulkDispatcher {
+
+    private final LogIngestionProperties ingestionProperties;
+    private final ElasticsearchProperties elasticsearchProperties;
+    private final BulkShipper bulkShipper;
+    private final EventSpool eventSpool;
+    private final ObjectMapper objectMapper;
+
+    private final BlockingQueue<BulkPayloadWriter> idleWriters = new LinkedBlockingQueue<>();
+    private Semaphore writerPermits;
+    private ExecutorService shippers;
+
+    @PostConstruct
+    void start() {
+        int concurrency = Math.max(1, ingestionProperties.getBulkConcurrency());
+        writerPermits = new Semaphore(concurrency * 2);
+        AtomicInteger threadCounter = new AtomicInteger();
+        shippers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "log-bulk-shipper-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        shippers.shutdown();
+        if (!shippers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Bulk requests still in flight at shutdown; their lines are re-read on the next start");
+            shippers.shutdownNow();
+        }
+    }
+
+    /**
+     * Takes an empty payload writer from the pool, waiting while all of them are filled or in flight.
+     */
+    public BulkPayloadWriter acquire() throws InterruptedException {
+        writerPermits.acquire();
+        BulkPayloadWriter writer = idleWriters.poll();
+        if (writer == null) {
+            writer = new BulkPayloadWriter(objectMapper.getFactory(), elasticsearchProperties.getIndex());
+        }
+        writer.reset();
+        return writer;
+    }
+
+    /**
+     * Returns a writer that was acquired but not dispatched.
+     */
+    public void release(BulkPayloadWriter writer) {
+        idleWriters.offer(writer);
+        writerPermits.release();
+    }
+
+    /**
+     * Ships the payload on a shipper thread, then returns the writer to the pool and reports the outcome.
+     * Documents that cannot be shipped are spooled; {@code delivered} is {@code false} only if that failed too.
+     */
+    public void dispatch(BulkPayloadWriter payload, Completion completion) {
+        try {
+            shippers.execute(() -> {
+                boolean delivered = false;
+                try {
+                    delivered = deliver(payload);
+                } catch (RuntimeException exception) {
+                    log.error("Unexpected failure while shipping {} documents", payload.size(), exception);
+                } finally {
+                    release(payload);
+                }
+                complete(completion, delivered);
+            });
+        } catch (RejectedExecutionException exception) {
+            release(payload);
+            complete(completion, false);
+        }
+    }
+
+    private static void complete(Completion completion, boolean delivered) {
+        try {
+            completion.completed(delivered);
+        } catch (RuntimeException exception) {
+            log.error("Bulk completion callback failed", exception);
+        }
+    }
+
+    /**
+     * While the spool holds a backlog, new documents queue up behind it so they reach Elasticsearch in order.
+     * Documents the shipper gave up on are spooled as well.
+     */
+    private boolean deliver(BulkPayloadWriter payload) {
+        if (eventSpool.hasBacklog()) {
+            return eventSpool.append(payload);
+        }
+        return bulkShipper.ship(payload) || eventSpool.append(payload);
+    }
+
+    @FunctionalInterface
+    public interface Completion {
+        void completed(boolean delivered);
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds an Elasticsearch {@code _bulk} NDJSON body by streaming events through one reused
+ * {@link JsonGenerator} into one reused byte buffer.
+ * <p>
+ * Each event is serialised exactly once, straight from the {@link LogEvent} holder. The buffer is then
+ * written to the HTTP request body as is or through a {@link GZIPOutputStream}, so a batch exists in memory
+ * only once. Call {@link #reset()} to start the next batch with the same buffers.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class BulkPayloadWriter {
+
+    private static final int INITIAL_BUFFER_SIZE = 256 * 1024;
+    private static final byte[] ID_ACTION_SUFFIX = "\"}}\n".getBytes(StandardCharsets.UTF_8);
+
+    private final PayloadBuffer buffer = new PayloadBuffer(INITIAL_BUFFER_SIZE);
+    private final JsonGenerator generator;
+    private final byte[] indexAction;
+    private final byte[] indexActionWithIdPrefix;
+    private int[] itemStarts = new int[256];
+    private int documentCount;
+
+    public BulkPayloadWriter(JsonFactory jsonFactory, String index) {
+        try {
+            this.generator = jsonFactory.createGenerator(buffer);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.generator.setRootValueSeparator(null);
+        this.indexAction = ("{\"index\":{\"_index\":\"" + index + "\"}}\n").getBytes(StandardCharsets.UTF_8);
+        this.indexActionWithIdPrefix = ("{\"index\":{\"_index\":\"" + index + "\",\"_id\":\"")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void add(LogEvent event) {
+        startItem();
+        try {
+            writeAction(event.getId());
+
+            generator.writeStartObject();
+            generator.writeStringField("timestamp", event.getTimestamp().toString());
+            if (event.getLevel() != null) {
+                generator.writeStringField("level", event.getLevel());
+            }
+            generator.writeStringField("message", event.getMessage());
+            generator.writeStringField("raw", event.getRaw());
+            generator.writeStringField("source", event.getSource());
+            if (event.getLogger() != null) {
+                generator.writeStringField("logger", event.getLogger());
+            }
+            if (event.getThread() != null) {
+                generator.writeStringField("thread", event.getThread());
+            }
+            if (event.getStackTrace() != null) {
+                generator.writeStringField("stack_trace", event.getStackTrace());
+            }
+            if (event.getPid() != null) {
+                generator.writeStringField("pid", event.getPid());
+            }
+            if (event.getRequestId() != null) {
+                generator.writeStringField("request_id", event.getRequestId());
+            }
+            if (event.getRepeatCount() > 0) {
+                generator.writeNumberField("repeat_count", event.getRepeatCount());
+                generator.writeStringField("first_timestamp", event.getFirstTimestamp().toString());
+                generator.writeStringField("last_timestamp", event.getLastTimestamp().toString());
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            generator.flush();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        documentCount++;
+    }
+
+    /**
+     * Writes the action line. Ids are generated by the ingestion code itself (hex digits, separators and
+     * numbers), so they are copied as ASCII instead of going through the JSON generator.
+     */
+    private void writeAction(String id) throws IOException {
+        if (id == null) {
+            buffer.write(indexAction);
+            return;
+        }
+        buffer.write(indexActionWithIdPrefix);
+        buffer.writeAscii(id);
+        buffer.write(ID_ACTION_SUFFIX);
+    }
+
+    /**
+     * Appends an item that was serialised earlier (its action line and document line), e.g. one replayed
+     * from the {@link EventSpool}.
+     */
+    public void appendItem(ByteBuffer item) {
+        startItem();
+        buffer.append(item);
+        documentCount++;
+    }
+
+    /**
+     * Hands the serialised bytes of every item to the visitor, in order and without copying.
+     */
+    public void forEachItem(ItemVisitor visitor) {
+        byte[] bytes = buffer.array();
+        int size = buffer.size();
+        for (int i = 0; i < documentCount; i++) {
+            int start = itemStarts[i];
+            int end = i + 1 < documentCount ? itemStarts[i + 1] : size;
+            visitor.visit(bytes, start, end - start);
+        }
+    }
+
+    private void startItem() {
+        if (documentCount == itemStarts.length) {
+            itemStarts = Arrays.copyOf(itemStarts, itemStarts.length * 2);
+        }
+        itemStarts[documentCount] = buffer.size();
+    }
+
+    public int size() {
+        return documentCount;
+    }
+
+    public boolean isEmpty() {
+        return documentCount == 0;
+    }
+
+    /**
+     * Uncompressed size of the NDJSON body in bytes.
+     */
+    public int byteSize() {
+        return buffer.size();
+    }
+
+    public void writeTo(OutputStream body, boolean gzip) throws IOException {
+        if (!gzip) {
+            buffer.writeTo(body);
+            return;
+        }
+        GZIPOutputStream compressed = new GZIPOutputStream(body, 8 * 1024);
+        buffer.writeTo(compressed);
+        compressed.finish();
+    }
+
+    /**
+     * Drops every item whose flag is {@code false}, keeping the survivors in their original order. Used to
+     * resend only the items Elasticsearch asked us to retry.
+     *
+     * @param keep one flag per item, in the order the items were added
+     */
+    public void retainItems(boolean[] keep) {
+        byte[] bytes = buffer.array();
+        int size = buffer.size();
+        int writePosition = 0;
+        int retained = 0;
+        for (int i = 0; i < documentCount; i++) {
+            if (!keep[i]) {
+                continue;
+            }
+            int start = itemStarts[i];
+            int end = i + 1 < documentCount ? itemStarts[i + 1] : size;
+            System.arraycopy(bytes, start, bytes, writePosition, end - start);
+            itemStarts[retained++] = writePosition;
+            writePosition += end - start;
+        }
+        buffer.truncate(writePosition);
+        documentCount = retained;
+    }
+
+    public void reset() {
+        buffer.reset();
+        documentCount = 0;
+    }
+
+    @FunctionalInterface
+    public interface ItemVisitor {
+        void visit(byte[] bytes, int offset, int length);
+    }
+
+    /**
+     * Exposes the backing array so items can be compacted in place.
+     */
+    private static final class PayloadBuffer extends ByteArrayOutputStream {
+
+        private PayloadBuffer(int size) {
+            super(size);
+        }
+
+        private byte[] array() {
+            return buf;
+        }
+
+        private void truncate(int size) {
+            count = size;
+        }
+
+        private void writeAscii(String value) {
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x20 || c >= 0x7f || c == '"' || c == '\\') {
+                    throw new IllegalArgumentException("Document id must be printable ASCII without quotes: " + value);
+                }
+            }
+            if (count + length > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + length));
+            }
+            for (int i = 0; i < length; i++) {
+                buf[count++] = (byte) value.charAt(i);
+            }
+        }
+
+        private void append(ByteBuffer source) {
+            int length = source.remaining();
+            if (count + length > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + length));
+            }
+            source.get(buf, count, length);
+            count += length;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Sends {@code _bulk} requests and makes sure each document is either accepted, permanently rejected or
+ * reported back as not shipped.
+ * <p>
+ * The response is read item by item: documents rejected with a retryable status (429 or 502-504) are
+ * resent on their own with exponential backoff, documents rejected for any other reason (mapping errors,
+ * malformed values) are logged and dropped. A failed HTTP call retries the whole batch.
+ * <p>
+ * The shipper also owns the adaptive batch size: {@link #targetBatchBytes()} shrinks by half whenever
+ * Elasticsearch pushes back (rejections, slow or failed requests) and grows step by step while requests
+ * complete well under {@link LogIngestionProperties#getBulkTargetLatency()}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BulkShipper {
+
+    private static final String BULK_ENDPOINT = "/_bulk?refresh=false";
+
+    private final RestTemplate elasticsearchRestTemplate;
+    private final ElasticsearchProperties elasticsearchProperties;
+    private final LogIngestionProperties ingestionProperties;
+    private final ObjectMapper objectMapper;
+    private final IngestionMetrics ingestionMetrics;
+
+    private final AtomicLong targetBatchBytes = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        targetBatchBytes.set(ingestionProperties.getBulkMaxBytes());
+    }
+
+    /**
+     * Number of uncompressed payload bytes after which callers should seal the current batch.
+     */
+    public long targetBatchBytes() {
+        return targetBatchBytes.get();
+    }
+
+    /**
+     * Ships the payload, retrying what can be retried. The payload is consumed: on return it holds at most
+     * the items that could not be delivered.
+     *
+     * @return {@code true} if every document was accepted or permanently rejected, {@code false} if some
+     * documents could not be delivered and should be shipped again later
+     */
+    public boolean ship(BulkPayloadWriter payload) {
+        int attempt = 0;
+        while (!payload.isEmpty()) {
+            long started = System.nanoTime();
+            BulkResult result;
+            try {
+                result = send(payload);
+            } catch (RestClientException exception) {
+                ingestionMetrics.bulkRequest(System.nanoTime() - started, false);
+                shrink();
+                if (++attempt > ingestionProperties.getBulkMaxRetries()) {
+                    log.error("Failed to ship {} documents to Elasticsearch after {} attempts",
+                            payload.size(), attempt, exception);
+                    return false;
+                }
+                log.warn("Bulk request failed ({}), retrying {} documents", exception.getMessage(), payload.size());
+                if (!backOff(attempt)) {
+                    return false;
+                }
+                continue;
+            }
+
+            long latency = System.nanoTime() - started;
+            ingestionMetrics.bulkRequest(latency, true);
+            ingestionMetrics.itemErrors(result.retryable(), result.rejected());
+            adapt(latency, result.retryable() > 0);
+
+            if (result.rejected() > 0) {
+                log.warn("Elasticsearch rejected {} of {} documents permanently: {}",
+                        result.rejected(), payload.size(), result.firstError());
+            }
+            if (result.retryable() == 0) {
+                payload.reset();
+                return true;
+            }
+            if (++attempt > ingestionProperties.getBulkMaxRetries()) {
+                log.error("Giving up on {} documents still rejected by Elasticsearch after {} attempts: {}",
+                        result.retryable(), attempt, result.firstRetryableError());
+                payload.retainItems(result.retry());
+                return false;
+            }
+            log.debug("Retrying {} of {} documents rejected with a retryable status",
+                    result.retryable(), payload.size());
+            payload.retainItems(result.retry());
+            if (!backOff(attempt)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private BulkResult send(BulkPayloadWriter payload) {
+        boolean gzip = elasticsearchProperties.isCompressRequests();
+        int itemCount = payload.size();
+        return elasticsearchRestTemplate.execute(BULK_ENDPOINT, HttpMethod.POST, request -> {
+            request.getHeaders().setContentType(MediaType.APPLICATION_NDJSON);
+            if (gzip) {
+                request.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            payload.writeTo(request.getBody(), gzip);
+        }, response -> readResponse(response, itemCount));
+    }
+
+    /**
+     * Streams through the bulk response. When {@code errors} is {@code false} the item list is not read at all.
+     */
+    private BulkResult readResponse(ClientHttpResponse response, int itemCount) throws IOException {
+        BulkResult result = new BulkResult(itemCount);
+        try (JsonParser parser = objectMapper.getFactory().createParser(response.getBody())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return result;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("errors".equals(field) && value == JsonToken.VALUE_FALSE) {
+                    return result;
+                }
+                if ("items".equals(field) && value == JsonToken.START_ARRAY) {
+                    readItems(parser, result);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return result;
+    }
+
+    private void readItems(JsonParser parser, BulkResult result) throws IOException {
+        int index = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            // {"index": {"status": 429, "error": {"type": "...", "reason": "..."}}}
+            parser.nextToken();
+            parser.nextToken();
+            int status = 200;
+            String error = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("status".equals(field)) {
+                    status = parser.getIntValue();
+                } else if ("error".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    error = parser.readValueAsTree().toString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            parser.nextToken();
+            result.record(index++, status, error);
+        }
+    }
+
+    private void adapt(long latencyNanos, boolean pushedBack) {
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+        long target = ingestionProperties.getBulkTargetLatency().toMillis();
+        if (pushedBack || latencyMillis > target) {
+            shrink();
+        } else if (latencyMillis < target / 2) {
+            long max = ingestionProperties.getBulkMaxBytes();
+            long step = Math.max(ingestionProperties.getBulkMinBytes(), max / 10);
+            targetBatchBytes.updateAndGet(current -> Math.min(max, current + step));
+        }
+    }
+
+    private void shrink() {
+        long min = ingestionProperties.getBulkMinBytes();
+        targetBatchBytes.updateAndGet(current -> Math.max(min, current / 2));
+    }
+
+    private boolean backOff(int attempt) {
+        long base = ingestionProperties.getBulkRetryBackoff().toMillis();
+        long max = ingestionProperties.getBulkMaxRetryBackoff().toMillis();
+        long delay = Math.min(max, base << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    static boolean isRetryable(int status) {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    private static final class BulkResult {
+        private final boolean[] retry;
+        private int retryable;
+        private int rejected;
+        private String firstError;
+        private String firstRetryableError;
+
+        private BulkResult(int itemCount) {
+            this.retry = new boolean[itemCount];
+        }
+
+        private void record(int index, int status, String error) {
+            if (status < 300 || index >= retry.length) {
+                return;
+            }
+            if (isRetryable(status)) {
+                retry[index] = true;
+                retryable++;
+                if (firstRetryableError == null) {
+                    firstRetryableError = error;
+                }
+            } else {
+                rejected++;
+                if (firstError == null) {
+                    firstError = error;
+                }
+            }
+        }
+
+        private boolean[] retry() {
+            return retry;
+        }
+
+        private int retryable() {
+            return retryable;
+        }
+
+        private int rejected() {
+            return rejected;
+        }
+
+        private String firstError() {
+            return firstError;
+        }
+
+        private String firstRetryableError() {
+            return firstRetryableError;
+        }
+    }
+}
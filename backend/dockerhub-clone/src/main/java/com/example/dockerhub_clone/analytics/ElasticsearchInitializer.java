@@ -4,6 +4,7 @@ import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.*;
 
@@ -15,6 +16,28 @@ public class ElasticsearchInitializer {
     private final RestTemplate elasticsearchRestTemplate;
     private final ElasticsearchProperties elasticsearchProperties;
 
+    /**
+     * Field mappings of the log index. New fields are only ever added here, so an existing index can be
+     * brought up to date with a {@code _mapping} update.
+     */
+    private static final String PROPERTIES = """
+            {
+              "timestamp": { "type": "date" },
+              "level": { "type": "keyword" },
+              "message": { "type": "text" },
+              "raw": { "type": "text" },
+              "source": { "type": "keyword" },
+              "logger": { "type": "keyword" },
+              "thread": { "type": "keyword" },
+              "stack_trace": { "type": "text" },
+              "pid": { "type": "keyword" },
+              "request_id": { "type": "keyword" },
+              "repeat_count": { "type": "integer" },
+              "first_timestamp": { "type": "date" },
+              "last_timestamp": { "type": "date" }
+            }
+            """;
+
     @PostConstruct
     public void init() {
         try {
@@ -23,6 +46,7 @@ public class ElasticsearchInitializer {
 
             if (response.getStatusCode().is2xxSuccessful()) {
                 log.info("Elasticsearch index '{}' already exists", index);
+                updateMapping(index);
             }
         } catch (Exception e) {
             // If index does not exist, create it
@@ -33,23 +57,25 @@ public class ElasticsearchInitializer {
             headers.setContentType(MediaType.APPLICATION_JSON);
 
             // Minimal mapping for logs
-            String body = """
-                {
-                  "mappings": {
-                    "properties": {
-                      "timestamp": { "type": "date" },
-                      "level": { "type": "keyword" },
-                      "message": { "type": "text" },
-                      "raw": { "type": "text" },
-                      "source": { "type": "keyword" }
-                    }
-                  }
-                }
-            """;
+            String body = "{\"mappings\": {\"properties\": " + PROPERTIES + "}}";
 
             HttpEntity<String> entity = new HttpEntity<>(body, headers);
             elasticsearchRestTemplate.put("/" + index, entity, String.class);
             log.info("Index '{}' created successfully", index);
         }
     }
+
+    /**
+     * Adds fields introduced after the index was created; existing fields are left untouched.
+     */
+    private void updateMapping(String index) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        try {
+            String body = "{\"properties\": " + PROPERTIES + "}";
+            elasticsearchRestTemplate.put("/" + index + "/_mapping", new HttpEntity<>(body, headers));
+        } catch (RestClientException e) {
+            log.warn("Failed to update the mapping of Elasticsearch index '{}': {}", index, e.getMessage());
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.example.dockerhub_clone.analytics;
 
+import java.time.Duration;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -41,4 +42,53 @@ public class ElasticsearchProperties {
      * If true, administrators can execute search requests against Elasticsearch.
      */
     private boolean searchEnabled = true;
-}
\ No newline at end of file
+
+    /**
+     * If true, bulk request bodies are gzip-compressed and sent with {@code Content-Encoding: gzip}.
+     */
+    private boolean compressRequests = true;
+
+    /**
+     * If true, documents that cannot be shipped (cluster down, retries exhausted) are written to a
+     * memory-mapped spool on local disk and replayed once Elasticsearch is reachable again.
+     */
+    private boolean spoolEnabled = true;
+
+    /**
+     * Location of the spool segment, preferably on a persistent data volume. The segment is created at its full
+     * size; spooling stays off until a location is configured.
+     */
+    private String spoolFile;
+
+    /**
+     * Size of the spool segment. When it is full, log files are no longer checkpointed past unshipped
+     * lines.
+     */
+    private long spoolMaxBytes = 64L * 1024 * 1024;
+
+    /**
+     * How often the spool is replayed to Elasticsearch while it holds events.
+     */
+    private Duration spoolDrainInterval = Duration.ofSeconds(10);
+
+    /**
+     * How often spooled events are flushed from the page cache to disk. A crash of the process loses nothing
+     * that was spooled; a crash of the host may lose what was spooled since the last flush.
+     */
+    private Duration spoolSyncInterval = Duration.ofSeconds(1);
+
+    /**
+     * How often the audit outbox relay looks for unshipped audit events.
+     */
+    private Duration outboxPollInterval = Duration.ofSeconds(1);
+
+    /**
+     * Maximum number of outbox rows read, and shipped in one bulk request, at a time.
+     */
+    private int outboxBatchSize = 1000;
+
+    /**
+     * How long shipped outbox rows are kept before they are deleted.
+     */
+    private Duration outboxRetention = Duration.ofDays(1);
+}
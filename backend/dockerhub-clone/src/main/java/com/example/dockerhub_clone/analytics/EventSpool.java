@@ -0,0 +1,376 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Bounded, memory-mapped spool on local disk that holds serialised bulk items while Elasticsearch cannot
+ * take them, and replays them in order once it can.
+ * <p>
+ * The segment is a fixed-size ring: a small header with the read and write positions followed by records
+ * of {@code [int length][action line + document line]}. A record never wraps; when it does not fit before
+ * the end of the segment the writer leaves a wrap marker (or fewer than four bytes) and continues at the
+ * start. Producers append whole batches or nothing, so callers know exactly whether their events are safe.
+ * Because the segment is mapped, spooled data lives in the page cache and heap usage does not grow with
+ * the length of an outage; once the segment is full, {@link #append} refuses further events.
+ * <p>
+ * While the spool holds a backlog, producers should append to it instead of shipping directly, so events
+ * reach Elasticsearch in the order they were produced and an unavailable cluster is not probed twice.
+ * <p>
+ * Draining and syncing run on threads of their own rather than on the shared Spring scheduler: a drain
+ * waits on {@link BulkShipper} retries, which must neither hold up the flush interval nor the other
+ * scheduled tasks.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EventSpool {
+
+    private static final int MAGIC = 0x53504c31; // "SPL1"
+    private static final int HEADER_SIZE = 16;
+    private static final int READ_POSITION_OFFSET = 4;
+    private static final int WRITE_POSITION_OFFSET = 8;
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES;
+    private static final int WRAP_MARKER = -1;
+    private static final int MIN_CAPACITY = 64 * 1024;
+
+    private final ElasticsearchProperties elasticsearchProperties;
+    private final BulkShipper bulkShipper;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private Path spoolFile;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int capacity;
+    private int readPosition;
+    private int writePosition;
+    private BulkPayloadWriter eventPayload;
+    private BulkPayloadWriter drainPayload;
+    private boolean dirty;
+    private ScheduledExecutorService drainExecutor;
+    private ScheduledExecutorService syncExecutor;
+
+    @PostConstruct
+    synchronized void open() {
+        if (!elasticsearchProperties.isEnabled() || !elasticsearchProperties.isSpoolEnabled()) {
+            return;
+        }
+        if (!StringUtils.hasText(elasticsearchProperties.getSpoolFile())) {
+            log.info("No analytics.elasticsearch.spool-file configured; events that cannot be shipped are dropped");
+            return;
+        }
+        spoolFile = Path.of(elasticsearchProperties.getSpoolFile()).toAbsolutePath().normalize();
+        try {
+            if (spoolFile.getParent() != null) {
+                Files.createDirectories(spoolFile.getParent());
+            }
+            channel = FileChannel.open(spoolFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long configured = Math.max(MIN_CAPACITY, elasticsearchProperties.getSpoolMaxBytes());
+            // never map less than an existing segment holds, or spooled events written with a larger limit are lost
+            capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(configured, channel.size()));
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException exception) {
+            log.error("Failed to open event spool {}; events that cannot be shipped will be dropped", spoolFile, exception);
+            closeSegment();
+            return;
+        }
+
+        readPosition = segment.getInt(READ_POSITION_OFFSET);
+        writePosition = segment.getInt(WRITE_POSITION_OFFSET);
+        if (segment.getInt(0) != MAGIC || !isValidPosition(readPosition) || !isValidPosition(writePosition)) {
+            if (segment.getInt(0) != 0) {
+                log.warn("Event spool {} has an unreadable header; starting with an empty spool", spoolFile);
+            }
+            segment.putInt(0, MAGIC);
+            readPosition = HEADER_SIZE;
+            writePosition = HEADER_SIZE;
+            writeHeader();
+        } else if (hasBacklog()) {
+            log.info("Event spool {} holds events from a previous run; they are replayed once Elasticsearch is reachable",
+                    spoolFile);
+        }
+
+        long drainInterval = elasticsearchProperties.getSpoolDrainInterval().toMillis();
+        drainExecutor = executor("event-spool-drain");
+        drainExecutor.scheduleWithFixedDelay(this::drainSafely, drainInterval, drainInterval, TimeUnit.MILLISECONDS);
+        long syncInterval = elasticsearchProperties.getSpoolSyncInterval().toMillis();
+        syncExecutor = executor("event-spool-sync");
+        syncExecutor.scheduleWithFixedDelay(this::syncSafely, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void close() {
+        // outside the lock: a running drain needs it to finish its batch
+        stop(drainExecutor);
+        stop(syncExecutor);
+        drainExecutor = null;
+        syncExecutor = null;
+        closeSegment();
+    }
+
+    private synchronized void closeSegment() {
+        sync();
+        segment = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException exception) {
+                log.debug("Failed to close event spool {}", spoolFile, exception);
+            }
+            channel = null;
+        }
+    }
+
+    public synchronized boolean isAvailable() {
+        return segment != null;
+    }
+
+    /**
+     * Whether spooled events are still waiting to be replayed.
+     */
+    public synchronized boolean hasBacklog() {
+        return segment != null && readPosition != writePosition;
+    }
+
+    public boolean isSpoolFile(Path path) {
+        return spoolFile != null && Objects.equals(path.toAbsolutePath().normalize(), spoolFile);
+    }
+
+    /**
+     * Spools every item of the payload, or none of them.
+     *
+     * @return {@code true} if the items are on disk and the caller may treat them as delivered
+     */
+    public synchronized boolean append(BulkPayloadWriter payload) {
+        if (segment == null) {
+            return false;
+        }
+        if (payload.isEmpty()) {
+            return true;
+        }
+        if (!write(payload, true)) {
+            log.warn("Event spool {} is full, {} events were not spooled", spoolFile, payload.size());
+            return false;
+        }
+        write(payload, false);
+        writeHeader();
+        return true;
+    }
+
+    /**
+     * Spools a single event, serialised the same way as a bulk item.
+     */
+    public synchronized boolean append(LogEvent event) {
+        if (segment == null) {
+            return false;
+        }
+        if (eventPayload == null) {
+            eventPayload = new BulkPayloadWriter(objectMapper.getFactory(), elasticsearchProperties.getIndex());
+        }
+        eventPayload.reset();
+        eventPayload.add(event);
+        return append(eventPayload);
+    }
+
+    /**
+     * Replays spooled items in order, one bulk request at a time, and stops at the first batch that cannot
+     * be delivered. Records only leave the spool after Elasticsearch accepted them.
+     */
+    public void drain() {
+        if (!hasBacklog() || !draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int replayed = 0;
+            while (true) {
+                int next;
+                synchronized (this) {
+                    if (segment == null || readPosition == writePosition) {
+                        break;
+                    }
+                    next = fill();
+                }
+                int batchSize = drainPayload.size();
+                if (!drainPayload.isEmpty() && !bulkShipper.ship(drainPayload)) {
+                    log.warn("Elasticsearch is still unavailable, {} events were replayed from the spool before it failed",
+                            replayed);
+                    return;
+                }
+                replayed += batchSize;
+                release(next);
+            }
+            if (replayed > 0) {
+                log.info("Replayed {} spooled events to Elasticsearch", replayed);
+            }
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    /**
+     * Flushes spooled records and positions written since the last flush to disk. Forcing on every append
+     * would msync the whole mapping once per batch.
+     */
+    public synchronized void sync() {
+        if (segment != null && dirty) {
+            segment.force();
+            dirty = false;
+        }
+    }
+
+    private void drainSafely() {
+        try {
+            drain();
+        } catch (RuntimeException exception) {
+            log.error("Unexpected failure while replaying the event spool", exception);
+        }
+    }
+
+    private void syncSafely() {
+        try {
+            sync();
+        } catch (RuntimeException exception) {
+            log.error("Failed to flush event spool {} to disk", spoolFile, exception);
+        }
+    }
+
+    private static ScheduledExecutorService executor(String name) {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static void stop(ScheduledExecutorService executor) {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException exception) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Copies records from the read position into the drain payload until it reaches the bulk target size.
+     *
+     * @return the read position after the copied records
+     */
+    private int fill() {
+        if (drainPayload == null) {
+            drainPayload = new BulkPayloadWriter(objectMapper.getFactory(), elasticsearchProperties.getIndex());
+        }
+        drainPayload.reset();
+        long target = bulkShipper.targetBatchBytes();
+        int position = readPosition;
+        while (position != writePosition && drainPayload.byteSize() < target) {
+            if (capacity - position < RECORD_HEADER_SIZE) {
+                position = HEADER_SIZE;
+                continue;
+            }
+            int length = segment.getInt(position);
+            if (length == WRAP_MARKER) {
+                position = HEADER_SIZE;
+                continue;
+            }
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > capacity) {
+                log.error("Event spool {} is corrupt at byte {}; discarding the rest of the spool", spoolFile, position);
+                drainPayload.reset();
+                return writePosition;
+            }
+            drainPayload.appendItem(segment.slice(position + RECORD_HEADER_SIZE, length));
+            position += RECORD_HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private synchronized void release(int position) {
+        readPosition = position;
+        if (readPosition == writePosition) {
+            // empty again: start over at the front so the next outage has the whole segment
+            readPosition = HEADER_SIZE;
+            writePosition = HEADER_SIZE;
+        }
+        writeHeader();
+    }
+
+    /**
+     * Lays the payload's items out after the write position. With {@code dryRun} nothing is written and the
+     * result only tells whether every item fits without overrunning unread records.
+     */
+    private boolean write(BulkPayloadWriter payload, boolean dryRun) {
+        int[] cursor = {writePosition};
+        payload.forEachItem((bytes, offset, length) -> {
+            if (cursor[0] < 0) {
+                return;
+            }
+            int size = RECORD_HEADER_SIZE + length;
+            int at = placement(cursor[0], size);
+            if (!dryRun && at >= 0) {
+                if (at != cursor[0] && capacity - cursor[0] >= RECORD_HEADER_SIZE) {
+                    segment.putInt(cursor[0], WRAP_MARKER);
+                }
+                segment.putInt(at, length);
+                segment.put(at + RECORD_HEADER_SIZE, bytes, offset, length);
+            }
+            cursor[0] = at < 0 ? -1 : at + size;
+        });
+        if (cursor[0] < 0) {
+            return false;
+        }
+        if (!dryRun) {
+            writePosition = cursor[0];
+        }
+        return true;
+    }
+
+    /**
+     * Where a record of {@code size} bytes written at {@code position} starts, or -1 if it would overrun
+     * unread records. The write position may never catch up with the read position, since equal positions
+     * mean the spool is empty.
+     */
+    private int placement(int position, int size) {
+        if (position >= readPosition) {
+            if (capacity - position >= size) {
+                return position;
+            }
+            return readPosition - HEADER_SIZE > size ? HEADER_SIZE : -1;
+        }
+        return readPosition - position > size ? position : -1;
+    }
+
+    private void writeHeader() {
+        segment.putInt(READ_POSITION_OFFSET, readPosition);
+        segment.putInt(WRITE_POSITION_OFFSET, writePosition);
+        dirty = true;
+    }
+
+    private boolean isValidPosition(int position) {
+        return position >= HEADER_SIZE && position <= capacity;
+    }
+}
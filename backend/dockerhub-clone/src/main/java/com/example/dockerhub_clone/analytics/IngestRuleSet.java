@@ -0,0 +1,101 @@
+package com.example.dockerhub_clone.analytics;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drop and sampling rules applied to every event before it is shipped, configured as
+ * {@link LogIngestionProperties#getIngestRules()} in the analytics query language.
+ * <p>
+ * Each rule's query is compiled once by {@link LogQueryParser#compile(String)}; the first rule whose
+ * predicate matches decides the event's fate, and events no rule matches are always kept. Sampling of file
+ * events is derived from their byte offset, so re-reading the same lines after a restart or retry keeps and
+ * drops exactly the same events; events without an offset are sampled at random.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IngestRuleSet {
+
+    private static final long SAMPLE_SCALE = 1L << 24;
+
+    private final LogIngestionProperties ingestionProperties;
+    private final LogQueryParser logQueryParser;
+
+    private final LongAdder dropped = new LongAdder();
+    private List<CompiledRule> rules = List.of();
+
+    /**
+     * @throws IllegalArgumentException if a rule's query does not parse, so a typo fails the startup
+     */
+    @PostConstruct
+    void compile() {
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (LogIngestionProperties.IngestRule rule : ingestionProperties.getIngestRules()) {
+            Predicate<LogEvent> predicate;
+            try {
+                predicate = logQueryParser.compile(rule.getQuery());
+            } catch (IllegalArgumentException exception) {
+                throw new IllegalArgumentException(
+                        "Invalid ingest rule '" + rule.getQuery() + "': " + exception.getMessage(), exception);
+            }
+            double rate = Math.min(1.0, Math.max(0.0, rule.getSampleRate()));
+            compiled.add(new CompiledRule(predicate, (long) (rate * SAMPLE_SCALE)));
+        }
+        rules = List.copyOf(compiled);
+        if (!rules.isEmpty()) {
+            log.info("Compiled {} log ingest rules", rules.size());
+        }
+    }
+
+    /**
+     * @return {@code false} if the event is dropped by a rule
+     */
+    public boolean accept(LogEvent event) {
+        for (CompiledRule rule : rules) {
+            if (rule.predicate().test(event)) {
+                if (rule.threshold() > 0 && sample(event) < rule.threshold()) {
+                    return true;
+                }
+                dropped.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * Number of events dropped since startup.
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    private static long sample(LogEvent event) {
+        if (event.getOffset() < 0) {
+            return ThreadLocalRandom.current().nextLong(SAMPLE_SCALE);
+        }
+        // murmur3 finaliser spreads consecutive offsets evenly over the sample range
+        long hash = event.getOffset();
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash & (SAMPLE_SCALE - 1);
+    }
+
+    private record CompiledRule(Predicate<LogEvent> predicate, long threshold) {
+    }
+}
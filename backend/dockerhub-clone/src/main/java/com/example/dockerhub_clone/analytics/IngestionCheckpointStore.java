@@ -0,0 +1,295 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Persists how far each log file has been shipped so restarts resume where the previous process stopped.
+ * <p>
+ * Checkpoints live in memory; commits only update the map, and {@link #flush()} writes it to a small JSON file,
+ * once per ingestion run rather than once per bulk request. The new content is written to a temporary file
+ * and forced to disk before an atomic rename replaces the old file, so a crash leaves either the previous or
+ * the new checkpoint set, never an empty file. A crash between flushes re-reads what was shipped since the
+ * last one; documents keep their ids, so that only overwrites them.
+ * <p>
+ * With leader election the file is shared by the replicas and only the leader may write it: the store is
+ * re-read whenever this node becomes leader, so it continues from the offsets of the previous leader, and it
+ * is emptied and ignores commits while another node leads, so a stale map can never overwrite theirs.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IngestionCheckpointStore {
+
+    static final int HEAD_BYTES = 256;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final LogIngestionProperties ingestionProperties;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, Checkpoint> checkpoints = new ConcurrentHashMap<>();
+    private volatile boolean writable = true;
+    private boolean dirty;
+
+    @PostConstruct
+    void start() {
+        // with election, the file is only read and written once this node holds the lease
+        if (ingestionProperties.isEnabled() && ingestionProperties.isLeaderElectionEnabled()) {
+            writable = false;
+        } else {
+            load();
+        }
+    }
+
+    @EventListener
+    void onLeadershipChanged(IngestionLeaderElection.LeadershipChanged event) {
+        if (event.leader()) {
+            load();
+        } else {
+            synchronized (this) {
+                writable = false;
+                dirty = false;
+                checkpoints.clear();
+            }
+            log.info("Dropped log ingestion checkpoints while another node leads ingestion");
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        try {
+            flush();
+        } catch (UncheckedIOException exception) {
+            log.warn("Failed to persist log ingestion checkpoints on shutdown", exception);
+        }
+    }
+
+    synchronized void load() {
+        checkpoints.clear();
+        writable = true;
+        dirty = false;
+        Path file = checkpointFile();
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            List<Checkpoint> stored = objectMapper.readValue(file.toFile(), new TypeReference<List<Checkpoint>>() {});
+            for (Checkpoint checkpoint : stored) {
+                checkpoints.put(checkpoint.path(), checkpoint);
+            }
+            log.info("Loaded {} log ingestion checkpoints from {}", checkpoints.size(), file);
+        } catch (IOException exception) {
+            log.warn("Ignoring unreadable log ingestion checkpoint file {}", file, exception);
+        }
+    }
+
+    /**
+     * Whether this node owns the checkpoint file, i.e. election is disabled or this node holds the lease.
+     */
+    public boolean isWritable() {
+        return writable;
+    }
+
+    public Optional<Checkpoint> find(Path path) {
+        return Optional.ofNullable(checkpoints.get(path.toString()));
+    }
+
+    /**
+     * Finds the most recent checkpoint for a file identity, wherever that file was seen last. This follows
+     * a file across renames such as {@code application.log -> application.log.1}. File systems reuse the
+     * identities of deleted files, so a checkpoint only counts if it was taken from a file with the same
+     * {@link #headOf head} as the candidate's.
+     */
+    public Optional<Checkpoint> findByFileKey(String fileKey, String head) {
+        if (fileKey == null) {
+            return Optional.empty();
+        }
+        return checkpoints.values().stream()
+                .filter(checkpoint -> fileKey.equals(checkpoint.fileKey()) && checkpoint.matches(head))
+                .max(Comparator.comparing(Checkpoint::updatedAt));
+    }
+
+    /**
+     * Finds the most recent checkpoint of a file whose content starts with the given {@link #headOf head},
+     * such as the live file a compressed archive was rotated from.
+     */
+    public Optional<Checkpoint> findByHead(String head) {
+        if (head == null) {
+            return Optional.empty();
+        }
+        return checkpoints.values().stream()
+                .filter(checkpoint -> head.equals(checkpoint.head()))
+                .max(Comparator.comparing(Checkpoint::updatedAt));
+    }
+
+    /**
+     * Drops checkpoints of files that no longer exist and have not been touched for {@code retention}.
+     */
+    public synchronized void prune(Duration retention) {
+        if (!writable) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(retention);
+        if (checkpoints.values().removeIf(checkpoint ->
+                checkpoint.updatedAt().isBefore(cutoff) && !Files.exists(Paths.get(checkpoint.path())))) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Records that every byte of {@code path} before {@code offset} has been accepted by Elasticsearch. The
+     * checkpoint is persisted by the next {@link #flush()}.
+     */
+    public synchronized void commit(Path path, String fileKey, long offset) {
+        commit(path, fileKey, offset, null);
+    }
+
+    public synchronized void commit(Path path, String fileKey, long offset, String head) {
+        if (!writable) {
+            log.debug("Not checkpointing {} at {}: this node is not the ingestion leader", path, offset);
+            return;
+        }
+        checkpoints.put(path.toString(), new Checkpoint(path.toString(), fileKey, offset, Instant.now(), head));
+        dirty = true;
+    }
+
+    /**
+     * Writes the checkpoints to disk if they changed since the last flush.
+     *
+     * @throws UncheckedIOException if the file cannot be written; the changes are kept for the next flush
+     */
+    public synchronized void flush() {
+        if (!writable || !dirty) {
+            return;
+        }
+        write();
+        dirty = false;
+    }
+
+    /**
+     * Tells whether {@code path} is the checkpoint file itself or its temporary sibling, so globs over the
+     * log directory never tail the store.
+     */
+    public boolean isStoreFile(Path path) {
+        Path file = checkpointFile();
+        Path normalized = path.toAbsolutePath().normalize();
+        return Objects.equals(normalized.getParent(), file.getParent())
+                && normalized.getFileName().toString().startsWith(file.getFileName().toString());
+    }
+
+    /**
+     * Returns the platform file identity (device and inode on Unix), which survives renames, or {@code null}
+     * when the file system does not expose one.
+     */
+    public static String fileKeyOf(Path path) throws IOException {
+        Object key = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        return key != null ? key.toString() : null;
+    }
+
+    /**
+     * Fingerprint of the first line of a log file, capped at {@value #HEAD_BYTES} bytes. It identifies the
+     * content independently of the file's name and identity, so a file can still be recognised after it was
+     * rotated and compressed. Returns {@code null} while the first line is incomplete.
+     */
+    public static String headOf(InputStream input) throws IOException {
+        byte[] head = input.readNBytes(HEAD_BYTES);
+        int length = head.length;
+        for (int i = 0; i < head.length; i++) {
+            if (head[i] == '\n') {
+                length = i + 1;
+                break;
+            }
+        }
+        if (length < HEAD_BYTES && (length == 0 || head[length - 1] != '\n')) {
+            return null;
+        }
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (head[i] & 0xff)) * FNV_PRIME;
+        }
+        return length + ":" + String.format("%016x", hash);
+    }
+
+    public static String headOf(Path path) throws IOException {
+        try (InputStream input = Files.newInputStream(path)) {
+            return headOf(input);
+        }
+    }
+
+    private void write() {
+        Path file = checkpointFile();
+        try {
+            Path directory = file.getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            byte[] json = objectMapper.writeValueAsBytes(new ArrayList<>(checkpoints.values()));
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(json);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                // the rename must never become durable before the content it points to
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Failed to persist log ingestion checkpoints to " + file, exception);
+        }
+    }
+
+    private Path checkpointFile() {
+        return Paths.get(ingestionProperties.getCheckpointFile()).toAbsolutePath().normalize();
+    }
+
+    /**
+     * @param path    absolute, normalized path of the log file
+     * @param fileKey platform file identity (inode on Unix) when the file was read, or {@code null} if unsupported
+     * @param offset  byte offset just past the last shipped line
+     * @param head    {@link #headOf head} of the file, or {@code null} if unknown
+     */
+    public record Checkpoint(String path, String fileKey, long offset, Instant updatedAt, String head) {
+
+        /**
+         * Whether this checkpoint may belong to a file whose content starts with {@code head}. A checkpoint
+         * without a head was taken before the first line was complete and matches any file.
+         */
+        public boolean matches(String head) {
+            return this.head == null || this.head.equals(head);
+        }
+    }
+}
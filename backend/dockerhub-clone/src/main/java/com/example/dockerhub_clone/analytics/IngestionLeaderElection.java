@@ -0,0 +1,166 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.example.dockerhub_clone.model.IngestionLease;
+import com.example.dockerhub_clone.repository.IngestionLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Elects the single backend node that runs file ingestion when several replicas tail the same log volume,
+ * and that relays the audit outbox. The election runs whenever it is enabled, also with file ingestion
+ * switched off, since {@link AuditOutboxRelay} depends on it either way.
+ * <p>
+ * The leader holds a row of {@code ingestion_leases} and extends it every
+ * {@link LogIngestionProperties#getLeaseRenewInterval()}; any node takes the row over once it has not been
+ * renewed for {@link LogIngestionProperties#getLeaseDuration()}, so a crashed leader fails over within one
+ * lease, and a node shutting down releases it right away. A node considers itself leader only until one
+ * renew interval before its lease ends, which leaves a stalled renewal or moderate clock skew between nodes
+ * room to resolve before anyone else can take over.
+ * <p>
+ * Renewals run on their own thread so a long ingestion run on the scheduler cannot let the lease lapse.
+ * Gaining and losing leadership is published as a {@link LeadershipChanged} event on that thread; a gain is
+ * published before {@link #isLeader()} turns true, so listeners can catch up with the previous leader's
+ * state first. With election disabled every node is leader, as before, and no events are published.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IngestionLeaderElection {
+
+    static final String LEASE_NAME = "log-ingestion";
+
+    private final LogIngestionProperties ingestionProperties;
+    private final IngestionLeaseRepository leaseRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final String owner = ownerId();
+    private ScheduledExecutorService renewExecutor;
+    private volatile boolean leader;
+    private volatile long leaderUntilNanos;
+
+    /**
+     * Starts competing for the lease once the context is ready, so every {@link LeadershipChanged} listener
+     * is registered before the first event.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (!ingestionProperties.isLeaderElectionEnabled()) {
+            return;
+        }
+        Duration renewInterval = ingestionProperties.getLeaseRenewInterval();
+        if (renewInterval.compareTo(ingestionProperties.getLeaseDuration()) >= 0) {
+            throw new IllegalStateException("analytics.logs.lease-renew-interval must be shorter than lease-duration");
+        }
+        renewExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-ingestion-leader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        renewExecutor.scheduleWithFixedDelay(this::renew, 0L, renewInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (renewExecutor == null) {
+            return;
+        }
+        renewExecutor.shutdownNow();
+        if (leader) {
+            leader = false;
+            eventPublisher.publishEvent(new LeadershipChanged(false));
+            try {
+                leaseRepository.release(LEASE_NAME, owner, Instant.now());
+            } catch (DataAccessException exception) {
+                log.warn("Could not release the log ingestion lease; another node takes over once it expires", exception);
+            }
+        }
+    }
+
+    /**
+     * Whether this node should ingest files and relay audit events right now.
+     */
+    public boolean isLeader() {
+        if (!ingestionProperties.isLeaderElectionEnabled()) {
+            return true;
+        }
+        return leader && System.nanoTime() - leaderUntilNanos < 0;
+    }
+
+    void renew() {
+        long started = System.nanoTime();
+        Instant now = Instant.now();
+        Duration leaseDuration = ingestionProperties.getLeaseDuration();
+        boolean acquired;
+        try {
+            acquired = tryAcquire(now, now.plus(leaseDuration));
+        } catch (DataAccessException exception) {
+            // keep what we have; the local deadline ends leadership before the lease can be taken over
+            log.warn("Failed to renew the log ingestion lease", exception);
+            return;
+        }
+
+        if (acquired) {
+            // also after a lapse of the local deadline: another node may have led in the meantime
+            if (!isLeader()) {
+                log.info("This node ({}) is now the log ingestion leader", owner);
+                eventPublisher.publishEvent(new LeadershipChanged(true));
+            }
+            leaderUntilNanos = started + leaseDuration.minus(ingestionProperties.getLeaseRenewInterval()).toNanos();
+            leader = true;
+        } else if (leader) {
+            leader = false;
+            log.info("This node ({}) is no longer the log ingestion leader", owner);
+            eventPublisher.publishEvent(new LeadershipChanged(false));
+        }
+    }
+
+    private boolean tryAcquire(Instant now, Instant expiresAt) {
+        if (leaseRepository.tryAcquire(LEASE_NAME, owner, now, expiresAt) > 0) {
+            return true;
+        }
+        if (leaseRepository.existsById(LEASE_NAME)) {
+            return false;
+        }
+        try {
+            leaseRepository.saveAndFlush(new IngestionLease(LEASE_NAME, owner, expiresAt, null));
+            return true;
+        } catch (DataIntegrityViolationException exception) {
+            return false; // another node created the row first
+        }
+    }
+
+    String owner() {
+        return owner;
+    }
+
+    private static String ownerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException exception) {
+            host = "unknown";
+        }
+        return host + ":" + ProcessHandle.current().pid() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Published when this node gains ({@code leader}) or loses the log ingestion lease.
+     */
+    public record LeadershipChanged(boolean leader) {
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.dockerhub_clone.analytics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer meters of the log ingestion pipeline, all prefixed {@code analytics.ingestion}.
+ * <p>
+ * Counters are updated per chunk or per bulk request rather than per line, so metering adds nothing
+ * measurable to the hot path. Per-file lag (file size minus committed offset) is published as one gauge per
+ * file, tagged with its path, and refreshed at the end of every ingestion run.
+ */
+@Component
+public class IngestionMetrics {
+
+    private static final String PREFIX = "analytics.ingestion";
+
+    private final Counter linesRead;
+    private final Counter bytesRead;
+    private final Timer bulkSucceeded;
+    private final Timer bulkFailed;
+    private final Counter retryableItemErrors;
+    private final Counter rejectedItemErrors;
+    private final MultiGauge fileLag;
+    private final AtomicLong totalLag = new AtomicLong();
+    private final LongAdder parseErrors = new LongAdder();
+    private volatile LongSupplier unparsedLines = () -> 0L;
+
+    public IngestionMetrics(MeterRegistry registry) {
+        linesRead = Counter.builder(PREFIX + ".lines")
+                .description("Lines read from log files")
+                .register(registry);
+        bytesRead = Counter.builder(PREFIX + ".bytes")
+                .description("Bytes read from log files")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + ".parse.failures", this, metrics -> metrics.parseFailures())
+                .description("Lines a structured format or source pattern did not match, and failed parse stages")
+                .register(registry);
+        bulkSucceeded = bulkTimer(registry, "success");
+        bulkFailed = bulkTimer(registry, "failure");
+        retryableItemErrors = itemErrorCounter(registry, "true");
+        rejectedItemErrors = itemErrorCounter(registry, "false");
+        fileLag = MultiGauge.builder(PREFIX + ".lag")
+                .description("Bytes of a log file not yet committed as shipped")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder(PREFIX + ".lag.total", totalLag, AtomicLong::get)
+                .description("Bytes of all log files not yet committed as shipped")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private static Timer bulkTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder(PREFIX + ".bulk.latency")
+                .description("Duration of _bulk requests")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static Counter itemErrorCounter(MeterRegistry registry, String retryable) {
+        return Counter.builder(PREFIX + ".bulk.item.errors")
+                .description("Documents Elasticsearch rejected in a _bulk response")
+                .tag("retryable", retryable)
+                .register(registry);
+    }
+
+    public void linesRead(int lines, long bytes) {
+        linesRead.increment(lines);
+        bytesRead.increment(bytes);
+    }
+
+    public void parseError() {
+        parseErrors.increment();
+    }
+
+    /**
+     * Source of the lines parsers could not match, summed over every parser.
+     */
+    public void unparsedLinesFrom(LongSupplier supplier) {
+        unparsedLines = supplier;
+    }
+
+    public void bulkRequest(long latencyNanos, boolean succeeded) {
+        (succeeded ? bulkSucceeded : bulkFailed).record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void itemErrors(int retryable, int rejected) {
+        if (retryable > 0) {
+            retryableItemErrors.increment(retryable);
+        }
+        if (rejected > 0) {
+            rejectedItemErrors.increment(rejected);
+        }
+    }
+
+    /**
+     * Replaces the per-file lag gauges; files missing from {@code lagByFile} are no longer reported.
+     */
+    public void updateLag(Map<String, Long> lagByFile) {
+        List<MultiGauge.Row<?>> rows = lagByFile.entrySet().stream()
+                .<MultiGauge.Row<?>>map(entry -> MultiGauge.Row.of(Tags.of("file", entry.getKey()), entry.getValue()))
+                .toList();
+        fileLag.register(rows, true);
+        totalLag.set(lagByFile.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    public long linesRead() {
+        return (long) linesRead.count();
+    }
+
+    public long bytesRead() {
+        return (long) bytesRead.count();
+    }
+
+    public long parseFailures() {
+        return parseErrors.sum() + unparsedLines.getAsLong();
+    }
+
+    public Timer bulkSucceeded() {
+        return bulkSucceeded;
+    }
+
+    public Timer bulkFailed() {
+        return bulkFailed;
+    }
+
+    public long retryableItemErrors() {
+        return (long) retryableItemErrors.count();
+    }
+
+    public long rejectedItemErrors() {
+        return (long) rejectedItemErrors.count();
+    }
+
+    public long totalLag() {
+        return totalLag.get();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.dockerhub_clone.analytics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Precompiled layout of a log line, such as the Spring Boot default
+ * {@code {timestamp} {level} {pid} --- [{*}] [{thread}] {logger} : {message}}.
+ * <p>
+ * A pattern is literal text with named fields in braces. Compiling splits it once into alternating
+ * literals and fields; matching then walks the line left to right, and each field ends where the next
+ * literal is first found by {@link String#indexOf(String, int)}. Nothing is ever retried, so a line is
+ * matched in one pass regardless of its content. Field values are trimmed, which absorbs the padding of
+ * fixed-width layouts such as {@code %5p} or {@code %-40.40logger}. {@code {*}} matches a field that is not
+ * extracted.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class LinePattern {
+
+    public enum Field {
+        TIMESTAMP("timestamp"),
+        LEVEL("level"),
+        PID("pid"),
+        THREAD("thread"),
+        LOGGER("logger"),
+        REQUEST_ID("request_id"),
+        MESSAGE("message"),
+        SKIP("*");
+
+        private final String placeholder;
+
+        Field(String placeholder) {
+            this.placeholder = placeholder;
+        }
+
+        private static Field of(String name, String pattern) {
+            String normalized = name.trim().toLowerCase(Locale.ROOT);
+            for (Field field : values()) {
+                if (field.placeholder.equals(normalized)) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("Unknown field '{" + name + "}' in log line pattern '" + pattern
+                    + "'; supported fields are timestamp, level, pid, thread, logger, request_id, message and *");
+        }
+    }
+
+    private final String pattern;
+    /** {@code literals[i]} precedes {@code fields[i]}; the last literal follows the last field. */
+    private final String[] literals;
+    private final Field[] fields;
+
+    private LinePattern(String pattern, String[] literals, Field[] fields) {
+        this.pattern = pattern;
+        this.literals = literals;
+        this.fields = fields;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the pattern has no fields, an unknown or unclosed field, or two
+     * fields without literal text between them
+     */
+    public static LinePattern compile(String pattern) {
+        List<String> literals = new ArrayList<>();
+        List<Field> fields = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int position = 0;
+        while (position < pattern.length()) {
+            char ch = pattern.charAt(position);
+            if (ch != '{') {
+                literal.append(ch);
+                position++;
+                continue;
+            }
+            int closing = pattern.indexOf('}', position + 1);
+            if (closing < 0) {
+                throw new IllegalArgumentException("Unclosed field in log line pattern '" + pattern + "'");
+            }
+            if (!fields.isEmpty() && literal.isEmpty()) {
+                throw new IllegalArgumentException(
+                        "Fields must be separated by literal text in log line pattern '" + pattern + "'");
+            }
+            literals.add(literal.toString());
+            literal.setLength(0);
+            fields.add(Field.of(pattern.substring(position + 1, closing), pattern));
+            position = closing + 1;
+        }
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("Log line pattern '" + pattern + "' has no fields");
+        }
+        literals.add(literal.toString());
+        return new LinePattern(pattern, literals.toArray(String[]::new), fields.toArray(Field[]::new));
+    }
+
+    public int fieldCount() {
+        return fields.length;
+    }
+
+    public Field field(int index) {
+        return fields[index];
+    }
+
+    /**
+     * Matches the line and stores the trimmed bounds of field {@code i} in {@code bounds[2 * i]} (start,
+     * inclusive) and {@code bounds[2 * i + 1]} (end, exclusive).
+     *
+     * @param bounds array of at least {@code 2 * fieldCount()} elements
+     * @return {@code false} if a literal of the pattern is missing from the line
+     */
+    public boolean match(String line, int[] bounds) {
+        String leading = literals[0];
+        if (!line.startsWith(leading)) {
+            return false;
+        }
+        int position = leading.length();
+        int end = line.length();
+        for (int i = 0; i < fields.length; i++) {
+            int start = position;
+            while (start < end && line.charAt(start) <= ' ') {
+                start++;
+            }
+            String next = literals[i + 1];
+            int fieldEnd;
+            if (next.isEmpty()) {
+                fieldEnd = end; // only the last field can be open-ended
+                position = end;
+            } else {
+                fieldEnd = line.indexOf(next, start);
+                if (fieldEnd < 0) {
+                    return false;
+                }
+                position = fieldEnd + next.length();
+            }
+            while (fieldEnd > start && line.charAt(fieldEnd - 1) <= ' ') {
+                fieldEnd--;
+            }
+            bounds[2 * i] = start;
+            bounds[2 * i + 1] = fieldEnd;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.dockerhub_clone.analytics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * One-off shipping of rotated, gzip-compressed log archives configured in
+ * {@link LogIngestionProperties#getBackfillPaths()}.
+ * <p>
+ * Archives are decompressed and shipped in parallel, one archive per worker. An archive is recorded in the
+ * checkpoint store once all of its lines were accepted, so later restarts skip it. An archive of a file that
+ * was tailed before it rotated is recognised by its first line and only ships what tailing had not reached.
+ * <p>
+ * Only the ingestion leader backfills: on startup if it already leads, otherwise as soon as it gains the
+ * lease. Archives still pending when the lease is lost are left to the next leader.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LogBackfillService {
+
+    private final LogIngestionProperties ingestionProperties;
+    private final ElasticsearchProperties elasticsearchProperties;
+    private final LogIngestionService logIngestionService;
+    private final IngestionCheckpointStore checkpointStore;
+    private final IngestionLeaderElection leaderElection;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (leaderElection.isLeader()) {
+            startBackfill();
+        }
+    }
+
+    @EventListener
+    public void backfillOnLeadership(IngestionLeaderElection.LeadershipChanged event) {
+        if (event.leader()) {
+            startBackfill();
+        }
+    }
+
+    private void startBackfill() {
+        if (!ingestionProperties.isEnabled() || ingestionProperties.getBackfillPaths().isEmpty()) {
+            return;
+        }
+        if (!elasticsearchProperties.isEnabled() || !elasticsearchProperties.isIngestEnabled()) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread thread = new Thread(() -> {
+            try {
+                backfill();
+            } finally {
+                running.set(false);
+            }
+        }, "log-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void backfill() {
+        List<Path> archives = pendingArchives();
+        if (archives.isEmpty()) {
+            log.info("Log backfill: no unshipped archives match {}", ingestionProperties.getBackfillPaths());
+            return;
+        }
+
+        int parallelism = Math.max(1, Math.min(ingestionProperties.getBackfillParallelism(), archives.size()));
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "log-backfill-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        log.info("Log backfill: shipping {} archives with {} workers", archives.size(), parallelism);
+        int shipped = 0;
+        try {
+            List<Future<Boolean>> results = new ArrayList<>(archives.size());
+            for (Path archive : archives) {
+                results.add(executor.submit(() -> backfillArchive(archive)));
+            }
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    shipped++;
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException exception) {
+            log.error("Log backfill worker failed", exception.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("Log backfill finished: {} of {} archives shipped", shipped, archives.size());
+    }
+
+    private boolean backfillArchive(Path archive) {
+        if (!checkpointStore.isWritable()) {
+            return false; // lost the lease; the new leader backfills what is left
+        }
+        try {
+            String fileKey = IngestionCheckpointStore.fileKeyOf(archive);
+            long size = Files.size(archive);
+            if (!logIngestionService.ingestArchive(archive)) {
+                log.warn("Log backfill: {} was not fully shipped and will be retried on next startup", archive);
+                return false;
+            }
+            checkpointStore.commit(archive, fileKey, size);
+            checkpointStore.flush();
+            return true;
+        } catch (IOException | UncheckedIOException exception) {
+            log.error("Log backfill: failed to read {}", archive, exception);
+            return false;
+        }
+    }
+
+    private List<Path> pendingArchives() {
+        List<Path> archives = new ArrayList<>();
+        for (LogPathPattern pattern : LogPathPattern.compileAll(ingestionProperties.getBackfillPaths())) {
+            try {
+                for (Path candidate : pattern.resolve()) {
+                    if (LogIngestionService.isArchive(candidate) && !isShipped(candidate)) {
+                        archives.add(candidate);
+                    }
+                }
+            } catch (IOException exception) {
+                log.warn("Log backfill: failed to resolve {}", pattern, exception);
+            }
+        }
+        return archives;
+    }
+
+    private boolean isShipped(Path archive) throws IOException {
+        long size = Files.size(archive);
+        return checkpointStore.find(archive)
+                .filter(checkpoint -> checkpoint.offset() >= size)
+                .isPresent();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.dockerhub_clone.analytics;
+
+import java.time.Instant;
+import lombok.Data;
+
+/**
+ * Mutable holder for one parsed log event. Parsers write into a single instance per reader and call
+ * {@link #reset()} between lines instead of allocating a new document per line.
+ */
+@Data
+public class LogEvent {
+
+    private Instant timestamp;
+    private String level;
+    private String message;
+    private String raw;
+    private String source;
+    private String logger;
+    private String thread;
+    private String stackTrace;
+    private String pid;
+    private String requestId;
+
+    /**
+     * Elasticsearch document id; replays of the same event carry the same id and overwrite instead of
+     * duplicating. {@code null} lets Elasticsearch generate one.
+     */
+    private String id;
+
+    /**
+     * Number of repeats a collapsed summary stands for, {@code 0} for an ordinary event.
+     */
+    private int repeatCount;
+
+    /**
+     * Timestamps of the first and last repeat of a collapsed summary.
+     */
+    private Instant firstTimestamp;
+    private Instant lastTimestamp;
+
+    /**
+     * Byte offset of the event's first line in its file, or {@code -1} if it did not come from a file.
+     */
+    private long offset = -1L;
+
+    public void reset() {
+        timestamp = null;
+        level = null;
+        message = null;
+        raw = null;
+        source = null;
+        logger = null;
+        thread = null;
+        stackTrace = null;
+        pid = null;
+        requestId = null;
+        id = null;
+        repeatCount = 0;
+        firstTimestamp = null;
+        lastTimestamp = null;
+        offset = -1L;
+    }
+
+    public void copyFrom(LogEvent other) {
+        timestamp = other.timestamp;
+        level = other.level;
+        message = other.message;
+        raw = other.raw;
+        source = other.source;
+        logger = other.logger;
+        thread = other.thread;
+        stackTrace = other.stackTrace;
+        pid = other.pid;
+        requestId = other.requestId;
+        id = other.id;
+        repeatCount = other.repeatCount;
+        firstTimestamp = other.firstTimestamp;
+        lastTimestamp = other.lastTimestamp;
+        offset = other.offset;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.dockerhub_clone.analytics;
+
+import java.util.function.Consumer;
+
+/**
+ * Folds continuation lines (stack frames, {@code Caused by:}, wrapped messages) into the event that
+ * precedes them, so one exception becomes one document instead of one per line.
+ * <p>
+ * A line starts a new event when {@link LogLineParser#startsEvent(String)} says so; anything else is
+ * appended to the pending event, up to {@code maxLines} lines in total. The pending event is only handed to
+ * the sink once the next event starts or {@link #flush(Consumer)} is called, so callers must not checkpoint
+ * past {@link #pendingStartOffset()} while an event is pending.
+ * <p>
+ * Instances belong to a single reader and are not thread-safe.
+ */
+public class LogEventStitcher {
+
+    private final LogLineParser parser;
+    private final int maxLines;
+    private final LogEvent pending = new LogEvent();
+    private final StringBuilder message = new StringBuilder();
+    private final StringBuilder raw = new StringBuilder();
+
+    private boolean hasPending;
+    private long pendingStartOffset = -1L;
+    private int lines;
+    private int truncatedLines;
+
+    /**
+     * @param maxLines maximum number of physical lines per event; {@code 1} disables stitching
+     */
+    public LogEventStitcher(LogLineParser parser, int maxLines) {
+        this.parser = parser;
+        this.maxLines = Math.max(1, maxLines);
+    }
+
+    public void accept(String line, long startOffset, String source, Consumer<LogEvent> sink) {
+        if (hasPending && maxLines > 1 && !parser.startsEvent(line)) {
+            append(line);
+            return;
+        }
+
+        flush(sink);
+        if (parser.parse(line, source, pending)) {
+            pending.setOffset(startOffset);
+            hasPending = true;
+            pendingStartOffset = startOffset;
+            lines = 1;
+        }
+    }
+
+    /**
+     * Emits the pending event, if any.
+     */
+    public void flush(Consumer<LogEvent> sink) {
+        if (!hasPending) {
+            return;
+        }
+        if (lines > 1) {
+            if (truncatedLines > 0) {
+                message.append("\n... ").append(truncatedLines).append(" more lines");
+            }
+            pending.setMessage(message.toString());
+            pending.setRaw(raw.toString());
+        }
+        sink.accept(pending);
+
+        hasPending = false;
+        pendingStartOffset = -1L;
+        lines = 0;
+        truncatedLines = 0;
+        message.setLength(0);
+        raw.setLength(0);
+    }
+
+    public boolean hasPending() {
+        return hasPending;
+    }
+
+    /**
+     * Byte offset of the first line of the pending event, or {@code -1} if nothing is pending.
+     */
+    public long pendingStartOffset() {
+        return pendingStartOffset;
+    }
+
+    private void append(String line) {
+        if (line.isBlank()) {
+            return;
+        }
+        if (lines >= maxLines) {
+            truncatedLines++;
+            return;
+        }
+        if (lines == 1) {
+            message.append(pending.getMessage());
+            raw.append(pending.getRaw());
+        }
+        message.append('\n').append(line);
+        raw.append('\n').append(line);
+        lines++;
+    }
+}
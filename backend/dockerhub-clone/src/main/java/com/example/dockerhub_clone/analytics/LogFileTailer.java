@@ -0,0 +1,125 @@
+package com.example.dockerhub_clone.analytics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads newline-terminated lines from a log file starting at a byte offset.
+ * <p>
+ * Bytes are pulled through a reusable direct buffer and split on {@code '\n'} before any decoding,
+ * so each line is decoded from UTF-8 exactly once. A trailing line without a terminating newline is
+ * left unread; the returned offset always points just past the last complete line.
+ * <p>
+ * Instances keep their buffers between calls and are not thread-safe.
+ */
+public class LogFileTailer {
+
+    private static final int DEFAULT_READ_BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_LINE_BUFFER_SIZE = 1024;
+
+    private final ByteBuffer readBuffer;
+    private byte[] lineBuffer = new byte[INITIAL_LINE_BUFFER_SIZE];
+    private int lineLength;
+
+    public LogFileTailer() {
+        this(DEFAULT_READ_BUFFER_SIZE);
+    }
+
+    public LogFileTailer(int readBufferSize) {
+        this.readBuffer = ByteBuffer.allocateDirect(readBufferSize);
+    }
+
+    /**
+     * Streams every complete line found after {@code offset} to the handler until the file is exhausted or
+     * the handler asks to stop.
+     *
+     * @return the byte offset immediately after the last complete line that was handed out
+     */
+    public long tail(Path path, long offset, LineHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return tail(channel, offset, handler);
+        }
+    }
+
+    public long tail(FileChannel channel, long offset, LineHandler handler) throws IOException {
+        channel.position(offset);
+        return read(channel, offset, handler);
+    }
+
+    /**
+     * Reads lines sequentially from the channel's current position, for sources that cannot seek such as
+     * decompressed archives. {@code offset} is only used to number the bytes handed to the handler.
+     */
+    public long read(ReadableByteChannel channel, long offset, LineHandler handler) throws IOException {
+        long position = offset;
+        long lineStart = offset;
+        lineLength = 0;
+        readBuffer.clear();
+
+        while (channel.read(readBuffer) > 0) {
+            readBuffer.flip();
+            int chunkStart = 0;
+            int limit = readBuffer.limit();
+
+            for (int i = 0; i < limit; i++) {
+                if (readBuffer.get(i) != '\n') {
+                    continue;
+                }
+                appendToLine(chunkStart, i);
+                long lineEnd = position + i + 1;
+                boolean keepReading = handler.onLine(decodeLine(), lineStart, lineEnd);
+                lineStart = lineEnd;
+                lineLength = 0;
+                chunkStart = i + 1;
+                if (!keepReading) {
+                    return lineStart;
+                }
+            }
+
+            appendToLine(chunkStart, limit);
+            position += limit;
+            readBuffer.clear();
+        }
+
+        lineLength = 0;
+        return lineStart;
+    }
+
+    private void appendToLine(int from, int to) {
+        int length = to - from;
+        if (length <= 0) {
+            return;
+        }
+        if (lineLength + length > lineBuffer.length) {
+            lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineBuffer.length * 2, lineLength + length));
+        }
+        readBuffer.get(from, lineBuffer, lineLength, length);
+        lineLength += length;
+    }
+
+    private String decodeLine() {
+        int length = lineLength;
+        if (length > 0 && lineBuffer[length - 1] == '\r') {
+            length--;
+        }
+        return new String(lineBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    public interface LineHandler {
+
+        /**
+         * @param line        decoded line without its terminator
+         * @param startOffset byte offset of the first byte of the line
+         * @param endOffset   byte offset just past the line terminator
+         * @return {@code false} to stop reading after this line
+         */
+        boolean onLine(String line, long startOffset, long endOffset);
+    }
+}
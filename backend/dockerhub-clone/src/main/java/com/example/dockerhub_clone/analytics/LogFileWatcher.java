@@ -0,0 +1,244 @@
+package com.example.dockerhub_clone.analytics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Triggers log ingestion from {@link WatchService} events so new lines reach Elasticsearch within the
+ * throttle window instead of the next poll.
+ * <p>
+ * Events are throttled rather than debounced: the first change schedules one ingestion run after
+ * {@link LogIngestionProperties#getWatchThrottle()} and every change seen before it starts is covered by
+ * that run. Later changes do not push the run back, so a log that is written to without pause is still
+ * shipped every window. Changes to the checkpoint file, the spool and {@code .gz} archives are ignored.
+ * The scheduled poll in {@link LogIngestionService} stays active for anything the watcher misses
+ * (overflowed event queues, base directories created after startup, file systems without change notification).
+ * Subdirectories that a pattern reaches into are watched as well, including ones created while running.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LogFileWatcher {
+
+    private final LogIngestionProperties ingestionProperties;
+    private final ElasticsearchProperties elasticsearchProperties;
+    private final LogIngestionService logIngestionService;
+    private final IngestionCheckpointStore checkpointStore;
+    private final EventSpool eventSpool;
+
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Set<Path> registeredDirectories = new HashSet<>();
+    private final AtomicBoolean runPending = new AtomicBoolean();
+
+    private List<LogPathPattern> patterns = List.of();
+    private WatchService watchService;
+    private ScheduledExecutorService ingestionExecutor;
+    private Thread watchThread;
+
+    @PostConstruct
+    void start() {
+        if (!ingestionProperties.isEnabled() || !ingestionProperties.isWatchEnabled()) {
+            return;
+        }
+        if (!elasticsearchProperties.isEnabled() || !elasticsearchProperties.isIngestEnabled()) {
+            return;
+        }
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            patterns = LogPathPattern.compileAll(ingestionProperties.tailedPaths());
+            for (LogPathPattern pattern : patterns) {
+                register(pattern);
+            }
+        } catch (IOException exception) {
+            log.warn("Log file watching unavailable, relying on the poll interval only", exception);
+            stop();
+            return;
+        }
+
+        if (watchedDirectories.isEmpty()) {
+            log.info("No log directories to watch yet, relying on the poll interval only");
+            stop();
+            return;
+        }
+
+        ingestionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-ingestion-watch-trigger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchThread = new Thread(this::watchLoop, "log-ingestion-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        log.info("Watching {} log directories for changes", watchedDirectories.size());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException exception) {
+                log.debug("Failed to close log watch service", exception);
+            }
+        }
+        if (ingestionExecutor != null) {
+            ingestionExecutor.shutdownNow();
+        }
+    }
+
+    private void register(LogPathPattern pattern) throws IOException {
+        Path directory = pattern.getBaseDirectory();
+        if (directory == null || !Files.isDirectory(directory)) {
+            log.debug("Not watching {}: directory does not exist", pattern);
+            return;
+        }
+        registerTree(directory);
+    }
+
+    /**
+     * Registers {@code directory} and every subdirectory below it that a pattern reaches into, so globs with
+     * {@code **} or a wildcard directory segment see changes in nested directories too.
+     */
+    private void registerTree(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path candidate, BasicFileAttributes attributes) throws IOException {
+                if (!reachedByAnyPattern(candidate)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                if (registeredDirectories.add(candidate)) {
+                    WatchKey key = candidate.register(
+                            watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                    watchedDirectories.put(key, candidate);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path candidate, IOException exception) {
+                log.debug("Not watching {}: {}", candidate, exception.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private boolean reachedByAnyPattern(Path directory) {
+        for (LogPathPattern pattern : patterns) {
+            if (pattern.reaches(directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void watchLoop() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException exception) {
+                return;
+            }
+
+            Path directory = watchedDirectories.get(key);
+            if (directory != null && isRelevant(directory, key)) {
+                scheduleIngestion();
+            }
+
+            if (!key.reset()) {
+                log.warn("Stopped watching {}: directory is no longer accessible", directory);
+                watchedDirectories.remove(key);
+                registeredDirectories.remove(directory);
+            }
+        }
+    }
+
+    private boolean isRelevant(Path directory, WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                relevant = true;
+            } else if (event.context() instanceof Path changed) {
+                Path path = directory.resolve(changed);
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && isNewWatchedDirectory(path)) {
+                    // files may have been written before the registration, let the run pick them up
+                    relevant = true;
+                } else if (matchesAnyPattern(path)) {
+                    relevant = true;
+                }
+            }
+        }
+        return relevant;
+    }
+
+    private boolean isNewWatchedDirectory(Path path) {
+        if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS) || !reachedByAnyPattern(path)) {
+            return false;
+        }
+        try {
+            registerTree(path);
+        } catch (IOException exception) {
+            log.warn("Could not watch new log directory {}, relying on the poll interval for it", path, exception);
+        }
+        return true;
+    }
+
+    boolean matchesAnyPattern(Path changed) {
+        // our own checkpoint and spool writes must not retrigger ingestion
+        if (checkpointStore.isStoreFile(changed) || eventSpool.isSpoolFile(changed)
+                || LogIngestionService.isArchive(changed)) {
+            return false;
+        }
+        for (LogPathPattern pattern : patterns) {
+            if (pattern.matches(changed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scheduleIngestion() {
+        if (!runPending.compareAndSet(false, true)) {
+            return;
+        }
+        ingestionExecutor.schedule(() -> {
+            runPending.set(false);
+            try {
+                logIngestionService.shipNewLogLines();
+            } catch (RuntimeException exception) {
+                log.error("Watch-triggered log ingestion failed", exception);
+            }
+        }, ingestionProperties.getWatchThrottle().toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
@@ -16,17 +16,98 @@ public class LogIngestionProperties {
     private boolean enabled = false;
 
     /**
-     * Paths (absolute or relative) to application log files.
+     * Paths (absolute or relative) to application log files. Entries may be globs such as {@code logs/*.log};
+     * every matching file is tailed and followed across renames by its file key.
      */
     private List<String> paths = new ArrayList<>(List.of("logs/application.log"));
 
+    /**
+     * Log files with a known line layout. Each entry is tailed like an entry of {@code paths}, and its
+     * pattern (see {@link LinePattern}) extracts fields such as the PID, thread, logger and request id that the
+     * generic parser leaves in the message. A file matched by both a source and {@code paths} uses the source.
+     */
+    private List<Source> sources = new ArrayList<>();
+
     /**
      * Maximum number of log documents sent to Elasticsearch in a single bulk request.
      */
     private int bulkSize = 200;
 
     /**
-     * How frequently the ingestion scheduler checks the files for new entries.
+     * Upper bound for the uncompressed size of one bulk request. The actual size adapts between
+     * {@code bulkMinBytes} and this value depending on how fast Elasticsearch answers.
+     */
+    private long bulkMaxBytes = 5L * 1024 * 1024;
+
+    /**
+     * Lower bound for the adaptive bulk request size.
+     */
+    private long bulkMinBytes = 256L * 1024;
+
+    /**
+     * Bulk latency the adaptive sizing aims for: slower responses halve the batch size, responses faster
+     * than half of this grow it.
+     */
+    private Duration bulkTargetLatency = Duration.ofSeconds(1);
+
+    /**
+     * How many times a failed bulk request, or the items Elasticsearch rejected with 429/5xx, are resent
+     * before the batch is left for the next run.
+     */
+    private int bulkMaxRetries = 8;
+
+    /**
+     * Delay before the first retry; doubled on every further attempt up to {@code bulkMaxRetryBackoff}.
+     */
+    private Duration bulkRetryBackoff = Duration.ofMillis(200);
+
+    /**
+     * Upper bound for the delay between two retries.
+     */
+    private Duration bulkMaxRetryBackoff = Duration.ofSeconds(10);
+
+    /**
+     * Number of bulk requests that may be in flight at the same time. Reading and parsing continue while
+     * requests are outstanding, until this many further batches are buffered.
+     */
+    private int bulkConcurrency = 4;
+
+    /**
+     * Longest time a file's run waits for its bulk requests once reading has finished. A run that times out
+     * fails; batches that complete afterwards are not checkpointed and are read again by the next run.
+     */
+    private Duration batchTimeout = Duration.ofMinutes(5);
+
+    /**
+     * Maximum number of log files ingested at the same time; every further file waits for a free worker.
+     */
+    private int fileParallelism = 4;
+
+    /**
+     * How many lines the file reader may run ahead of the parser before it blocks.
+     */
+    private int readAheadLines = 8192;
+
+    /**
+     * Maximum number of bytes read from one file in a single run; the rest of a backlog is shipped by
+     * follow-up runs. 0 disables the limit.
+     */
+    private long runByteBudget = 64L * 1024 * 1024;
+
+    /**
+     * Maximum wall-clock time of a single run. Files are checkpointed where they stopped and the backlog is
+     * continued by a follow-up run. {@code 0} disables the limit.
+     */
+    private Duration runTimeBudget = Duration.ofSeconds(20);
+
+    /**
+     * Pause between two runs while a backlog is being worked off in slices.
+     */
+    private Duration runContinuationDelay = Duration.ofSeconds(1);
+
+    /**
+     * How frequently the ingestion scheduler checks the files for new entries. When file watching is enabled
+     * this is only a fallback for changes the watcher misses.
      */
     private Duration pollInterval = Duration.ofSeconds(30);
 
@@ -34,4 +115,168 @@ public class LogIngestionProperties {
      * Delay before the first ingestion execution, giving the application time to bootstrap.
      */
     private Duration initialDelay = Duration.ofSeconds(5);
-}
\ No newline at end of file
+
+    /**
+     * Ship new lines as soon as the file system reports a change instead of waiting for the next poll.
+     */
+    private boolean watchEnabled = true;
+
+    /**
+     * Delay between the first file change and the ingestion run it triggers; further changes in that window
+     * are shipped by the same run and do not delay it.
+     */
+    private Duration watchThrottle = Duration.ofMillis(250);
+
+    /**
+     * File that stores the shipped byte offset of every log file, so restarts resume instead of re-shipping.
+     */
+    private String checkpointFile = "logs/.ingestion-checkpoints.json";
+
+    /**
+     * Globs of rotated, gzip-compressed archives (e.g. {@code logs/archive/*.log.gz}) to ship once on startup.
+     * Archives that were fully shipped before are skipped.
+     */
+    private List<String> backfillPaths = new ArrayList<>();
+
+    /**
+     * Number of archives decompressed and shipped concurrently during backfill.
+     */
+    private int backfillParallelism = 4;
+
+    /**
+     * Maximum number of physical lines (e.g. stack frames) folded into one event; further lines are counted
+     * but dropped. Set to 1 to ship every line as its own document.
+     */
+    private int multilineMaxLines = 200;
+
+    /**
+     * Window in which repeats of the same message (digits ignored) are collapsed into one summary document
+     * with a {@code repeat_count}; the first occurrence is always shipped on its own. {@code 0} disables
+     * collapsing.
+     */
+    private Duration collapseWindow = Duration.ofSeconds(1);
+
+    /**
+     * Levels whose events are collapsed, by default {@code WARN}, {@code ERROR} and {@code FATAL}. The summary
+     * keeps only the first message, so ordinary lines that differ just in ids, durations or counts would lose
+     * them; events of other levels, or without a level, are always shipped one by one.
+     */
+    private List<String> collapseLevels = new ArrayList<>(List.of("WARN", "ERROR", "FATAL"));
+
+    /**
+     * Number of distinct messages tracked per file, and for the in-process appender, while collapsing.
+     */
+    private int collapseMaxGroups = 1024;
+
+    /**
+     * Rules that drop or sample events before they are shipped, e.g. a query of
+     * {@code level = DEBUG AND message CONTAINS heartbeat} with a sample rate of {@code 0.01}. The first
+     * matching rule applies; events no rule matches are always shipped.
+     */
+    private List<IngestRule> ingestRules = new ArrayList<>();
+
+    /**
+     * How long a file must be quiet before a multi-line event at its end is shipped without waiting for the
+     * next event to start.
+     */
+    private Duration multilineFlushTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Ship the application's own log events in-process through {@link ApplicationLogShipper} instead of
+     * tailing its log file. Remove that file from {@code paths} when enabling this, or its lines are shipped
+     * twice.
+     */
+    private boolean appenderEnabled = false;
+
+    /**
+     * Number of events the appender can queue before it drops new ones; rounded up to a power of two.
+     */
+    private int appenderBufferSize = 8192;
+
+    /**
+     * Longest time an application log event waits for its batch to fill before it is shipped.
+     */
+    private Duration appenderFlushInterval = Duration.ofSeconds(1);
+
+    /**
+     * Logger name prefixes the appender ignores. Logging done while shipping must be excluded, otherwise
+     * every bulk request would produce further events to ship.
+     */
+    private List<String> appenderExcludedLoggers = new ArrayList<>(List.of(
+            "com.example.dockerhub_clone.analytics",
+            "org.springframework.web.client",
+            "org.apache.http",
+            "org.apache.hc",
+            "org.elasticsearch",
+            "sun.net",
+            "jdk.internal.httpclient"));
+
+    /**
+     * Value of the {@code source} field of application log events.
+     */
+    private String appenderSource = "application";
+
+    /**
+     * MDC key whose value is shipped as the event's {@code request_id}.
+     */
+    private String appenderRequestIdKey = "requestId";
+
+    /**
+     * Elects one node through a lease row in the database to ingest files and relay the audit outbox, so
+     * replicas tailing the same log volume do not index every line once each. The checkpoint file must live on
+     * that shared volume too. The election also runs while file ingestion is disabled.
+     */
+    private boolean leaderElectionEnabled = false;
+
+    /**
+     * How long the lease lasts without renewal, and so how long a crashed leader holds up ingestion.
+     */
+    private Duration leaseDuration = Duration.ofSeconds(30);
+
+    /**
+     * How often the leader extends its lease and other nodes try to take it over; shorter than
+     * {@code leaseDuration}.
+     */
+    private Duration leaseRenewInterval = Duration.ofSeconds(10);
+
+    /**
+     * Every configured path or glob, those of {@code sources} first.
+     */
+    public List<String> tailedPaths() {
+        List<String> tailed = new ArrayList<>(sources.size() + paths.size());
+        sources.forEach(source -> tailed.add(source.getPath()));
+        tailed.addAll(paths);
+        return tailed;
+    }
+
+    @Data
+    public static class Source {
+
+        /**
+         * Path or glob of the files, as in {@code paths}.
+         */
+        private String path;
+
+        /**
+         * Line layout with named fields, e.g.
+         * {@code {timestamp} {level} {pid} --- [{*}] [{thread}] {logger} : {message}} for the Spring Boot
+         * default. Empty to use the generic parser.
+         */
+        private String pattern;
+    }
+
+    @Data
+    public static class IngestRule {
+
+        /**
+         * Condition in the analytics query language.
+         */
+        private String query;
+
+        /**
+         * Share of matching events that is shipped: {@code 0} drops all of them, {@code 0.01} keeps one in a
+         * hundred.
+         */
+        private double sampleRate = 0.0;
+    }
+}
@@ -1,221 +1,955 @@
 package com.example.dockerhub_clone.analytics;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.example.dockerhub_clone.dto.IngestionFileStatusDto;
+import com.example.dockerhub_clone.dto.IngestionStatusDto;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class LogIngestionService {
 
-    private static final DateTimeFormatter[] TIMESTAMP_FORMATS = new DateTimeFormatter[] {
-            DateTimeFormatter.ISO_INSTANT,
-            DateTimeFormatter.ISO_OFFSET_DATE_TIME,
-            DateTimeFormatter.ISO_LOCAL_DATE_TIME
-    };
+    private static final Duration CHECKPOINT_RETENTION = Duration.ofDays(7);
+    private static final int ARCHIVE_BUFFER_SIZE = 64 * 1024;
+    private static final int CHUNK_LINES = 512;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
 
     private final LogIngestionProperties ingestionProperties;
     private final ElasticsearchProperties elasticsearchProperties;
-    private final RestTemplate elasticsearchRestTemplate;
-    private final ObjectMapper objectMapper;
+    private final BulkShipper bulkShipper;
+    private final BulkDispatcher bulkDispatcher;
 
-    private final Map<Path, Long> fileOffsets = new ConcurrentHashMap<>();
+    private final IngestionCheckpointStore checkpointStore;
+    private final EventSpool eventSpool;
+    private final IngestRuleSet ingestRuleSet;
+    private final IngestionMetrics ingestionMetrics;
+    private final IngestionLeaderElection leaderElection;
+
+    private final ThreadLocal<LogFileTailer> tailers = ThreadLocal.withInitial(LogFileTailer::new);
+    private final LogLineParser lineParser = new LogLineParser();
+    private final Map<String, LogLineParser> sourceParsers = new ConcurrentHashMap<>();
+    private final Set<String> activeFileKeys = ConcurrentHashMap.newKeySet();
+    private final Map<String, CollapseState> collapseStates = new ConcurrentHashMap<>();
+    private volatile long runNumber;
+    private ExecutorService fileExecutor;
+    private ExecutorService parserExecutor;
+    private ScheduledExecutorService continuationExecutor;
+    private final AtomicBoolean continuationPending = new AtomicBoolean();
+    private volatile Instant lastRunStartedAt;
+    private volatile Duration lastRunDuration = Duration.ZERO;
+    private volatile boolean lastRunBudgetExhausted;
+    private volatile List<IngestionFileStatusDto> fileStatuses = List.of();
 
     @PostConstruct
     void onStart() {
         if (!ingestionProperties.isEnabled()) {
             log.info("Log ingestion scheduler disabled (analytics.logs.enabled=false)");
         }
+        // fail on startup rather than on the first run if a pattern does not compile
+        ingestionProperties.getSources().forEach(source -> parserFor(source.getPattern()));
+        ingestionMetrics.unparsedLinesFrom(() -> lineParser.unparsedLines()
+                + sourceParsers.values().stream().mapToLong(LogLineParser::unparsedLines).sum());
+        AtomicInteger fileThreadCounter = new AtomicInteger();
+        fileExecutor = Executors.newFixedThreadPool(Math.max(1, ingestionProperties.getFileParallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "log-ingestion-file-" + fileThreadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger parserThreadCounter = new AtomicInteger();
+        parserExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "log-ingestion-parser-" + parserThreadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        continuationExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-ingestion-continuation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void onStop() {
+        continuationExecutor.shutdownNow();
+        fileExecutor.shutdownNow();
+        parserExecutor.shutdownNow();
     }
 
+    /**
+     * Ships every line appended since the previous run. Invoked by the scheduler as a safety net and by
+     * {@link LogFileWatcher} whenever a watched file changes; runs never overlap. Within a run, files are
+     * ingested in parallel, up to {@link LogIngestionProperties#getFileParallelism()} at a time, so one
+     * large or slow file does not hold up the others.
+     * <p>
+     * A run reads at most {@link LogIngestionProperties#getRunByteBudget()} bytes per file and stops
+     * starting or reading files after {@link LogIngestionProperties#getRunTimeBudget()}. Whatever was read is
+     * checkpointed, and a follow-up run continues the backlog shortly after, so large backlogs drain in
+     * slices instead of in one long run.
+     * <p>
+     * With several replicas only the node elected by {@link IngestionLeaderElection} ingests files.
+     */
     @Scheduled(
             fixedDelayString = "${analytics.logs.poll-interval:PT30S}",
             initialDelayString = "${analytics.logs.initial-delay:PT5S}")
-    public void shipNewLogLines() {
+    public synchronized void shipNewLogLines() {
         if (!ingestionProperties.isEnabled()) {
             return;
         }
         if (!elasticsearchProperties.isEnabled() || !elasticsearchProperties.isIngestEnabled()) {
             return;
         }
+        if (!leaderElection.isLeader()) {
+            return;
+        }
 
-        for (String configuredPath : ingestionProperties.getPaths()) {
-            Path path = Paths.get(configuredPath).toAbsolutePath().normalize();
-            if (!Files.exists(path)) {
-                log.debug("Skipping ingestion for non-existent log file: {}", path);
-                continue;
-            }
-            if (!Files.isRegularFile(path)) {
-                log.warn("Configured log path is not a file: {}", path);
-                continue;
-            }
+        // overlapping globs must not hand the same file to two workers; sources come first and win
+        Map<Path, LogLineParser> files = new LinkedHashMap<>();
+        for (LogIngestionProperties.Source source : ingestionProperties.getSources()) {
+            collectFiles(source.getPath(), parserFor(source.getPattern()), files);
+        }
+        for (String path : ingestionProperties.getPaths()) {
+            collectFiles(path, lineParser, files);
+        }
+
+        Instant started = Instant.now();
+        long run = ++runNumber;
+        RunBudget budget = new RunBudget(ingestionProperties.getRunByteBudget(), ingestionProperties.getRunTimeBudget());
+        List<Future<?>> tasks = new ArrayList<>(files.size());
+        files.forEach((path, parser) -> tasks.add(fileExecutor.submit(() -> ingestFile(path, parser, budget))));
+        awaitAll(tasks);
+
+        // files that were not read this run (gone, drained after rotation) start afresh from their checkpoint
+        collapseStates.values().removeIf(state -> state.run() != run);
+        checkpointStore.prune(CHECKPOINT_RETENTION);
+        try {
+            checkpointStore.flush();
+        } catch (UncheckedIOException exception) {
+            log.error("Failed to persist log ingestion checkpoints; retrying after the next run", exception);
+        }
+        updateLag(files.keySet());
+        lastRunStartedAt = started;
+        lastRunDuration = Duration.between(started, Instant.now());
+        lastRunBudgetExhausted = budget.exhausted;
+        if (budget.exhausted) {
+            scheduleContinuation();
+        }
+    }
+
+    /**
+     * Current state of file ingestion for the admin API. File lag reflects the end of the last run.
+     */
+    public IngestionStatusDto status() {
+        Instant started = lastRunStartedAt;
+        return IngestionStatusDto.builder()
+                .enabled(ingestionProperties.isEnabled())
+                .lastRunStartedAt(started != null ? started.toString() : null)
+                .lastRunDurationMs(lastRunDuration.toMillis())
+                .lastRunBudgetExhausted(lastRunBudgetExhausted)
+                .linesRead(ingestionMetrics.linesRead())
+                .bytesRead(ingestionMetrics.bytesRead())
+                .parseFailures(ingestionMetrics.parseFailures())
+                .droppedByRules(ingestRuleSet.droppedCount())
+                .bulkRequests(ingestionMetrics.bulkSucceeded().count() + ingestionMetrics.bulkFailed().count())
+                .bulkFailures(ingestionMetrics.bulkFailed().count())
+                .bulkMeanLatencyMs(ingestionMetrics.bulkSucceeded().mean(TimeUnit.MILLISECONDS))
+                .retryableItemErrors(ingestionMetrics.retryableItemErrors())
+                .rejectedItemErrors(ingestionMetrics.rejectedItemErrors())
+                .targetBatchBytes(bulkShipper.targetBatchBytes())
+                .spoolBacklog(eventSpool.hasBacklog())
+                .totalLag(ingestionMetrics.totalLag())
+                .files(fileStatuses)
+                .build();
+    }
 
+    /**
+     * Lag is the file size minus the offset committed for the file's identity, so a file that replaced a
+     * rotated one counts from zero until its first checkpoint.
+     */
+    private void updateLag(Set<Path> files) {
+        List<IngestionFileStatusDto> statuses = new ArrayList<>(files.size());
+        Map<String, Long> lagByFile = new LinkedHashMap<>();
+        for (Path path : files) {
+            long size;
+            String fileKey;
+            String head;
             try {
-                processFile(path);
+                size = Files.size(path);
+                fileKey = IngestionCheckpointStore.fileKeyOf(path);
+                head = IngestionCheckpointStore.headOf(path);
             } catch (IOException exception) {
-                log.error("Failed to ingest logs from {}", path, exception);
+                continue; // removed or rotated since the run started
             }
+            long committed = checkpointStore.findByFileKey(fileKey, head)
+                    .map(IngestionCheckpointStore.Checkpoint::offset)
+                    .filter(offset -> offset <= size)
+                    .orElse(0L);
+            long lag = size - committed;
+            statuses.add(new IngestionFileStatusDto(path.toString(), size, committed, lag));
+            lagByFile.put(path.toString(), lag);
         }
+        fileStatuses = List.copyOf(statuses);
+        ingestionMetrics.updateLag(lagByFile);
     }
 
-    private void processFile(Path path) throws IOException {
-        long pointer = fileOffsets.getOrDefault(path, 0L);
+    private void collectFiles(String configuredPath, LogLineParser parser, Map<Path, LogLineParser> files) {
+        LogPathPattern pattern = LogPathPattern.compile(configuredPath);
+        List<Path> matches;
+        try {
+            matches = pattern.resolve();
+        } catch (IOException exception) {
+            log.warn("Failed to resolve log files for {}", pattern, exception);
+            return;
+        }
+        if (matches.isEmpty()) {
+            log.debug("Skipping ingestion, no log files match {}", pattern);
+            return;
+        }
+        for (Path path : matches) {
+            if (!checkpointStore.isStoreFile(path) && !eventSpool.isSpoolFile(path) && !isArchive(path)) {
+                files.putIfAbsent(path, parser);
+            }
+        }
+    }
+
+    /**
+     * Parser for a source's line pattern. Each distinct pattern is compiled once and the parser is shared by
+     * every file and run that uses it.
+     */
+    private LogLineParser parserFor(String pattern) {
+        if (pattern == null || pattern.isBlank()) {
+            return lineParser;
+        }
+        return sourceParsers.computeIfAbsent(pattern,
+                key -> new LogLineParser(ZoneId.systemDefault(), LinePattern.compile(key)));
+    }
 
-        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
-            long fileLength = file.length();
-            if (fileLength < pointer) {
-                pointer = 0L; // file rotated
+    private void scheduleContinuation() {
+        if (!continuationPending.compareAndSet(false, true)) {
+            return;
+        }
+        Duration delay = ingestionProperties.getRunContinuationDelay();
+        log.debug("Log ingestion budget exhausted, continuing the backlog in {}", delay);
+        continuationExecutor.schedule(() -> {
+            continuationPending.set(false);
+            try {
+                shipNewLogLines();
+            } catch (RuntimeException exception) {
+                log.error("Log ingestion continuation failed", exception);
             }
+        }, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
 
-            file.seek(pointer);
+    private void ingestFile(Path path, LogLineParser parser, RunBudget budget) {
+        try {
+            processFile(path, parser, budget);
+        } catch (IOException | UncheckedIOException exception) {
+            log.error("Failed to ingest logs from {}", path, exception);
+        }
+    }
 
-            List<ObjectNode> buffer = new ArrayList<>();
-            String line;
-            while ((line = file.readLine()) != null) {
-                String actualLine = new String(line.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
-                Optional<ObjectNode> document = parseLine(actualLine, path);
-                document.ifPresent(buffer::add);
+    private void awaitAll(List<Future<?>> tasks) {
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                tasks.forEach(remaining -> remaining.cancel(true));
+                return;
+            } catch (ExecutionException exception) {
+                log.error("Log ingestion worker failed", exception.getCause());
+            }
+        }
+    }
 
-                if (buffer.size() >= ingestionProperties.getBulkSize()) {
-                    sendBulk(buffer);
-                    buffer.clear();
+    /**
+     * Streams a gzip-compressed log archive through the regular parse and bulk path. Archives cannot be
+     * resumed mid-stream, so no checkpoint is written here; callers record completion themselves.
+     *
+     * @return {@code true} if every batch was accepted by Elasticsearch
+     */
+    public boolean ingestArchive(Path archive) throws IOException {
+        String head;
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(archive), ARCHIVE_BUFFER_SIZE)) {
+            head = IngestionCheckpointStore.headOf(input);
+        }
+        // an archive of a file that was tailed before it rotated continues where tailing stopped, under the
+        // same document ids, so lines shipped from the live file are not indexed a second time
+        Optional<IngestionCheckpointStore.Checkpoint> tailed = checkpointStore.findByHead(head);
+        long offset = tailed.map(IngestionCheckpointStore.Checkpoint::offset).orElse(0L);
+        FilePipeline pipeline = tailed
+                .map(checkpoint -> new FilePipeline(archive, checkpoint.path(), checkpoint.fileKey(), head, offset,
+                        offset, false, lineParser, RunBudget.UNLIMITED, newCollapser(ingestionProperties), false))
+                .orElseGet(() -> new FilePipeline(archive, archive.toString(), null, head, 0L, 0L, false, lineParser,
+                        RunBudget.UNLIMITED, newCollapser(ingestionProperties), false));
+        if (tailed.isPresent()) {
+            log.info("Log backfill: {} was tailed as {} up to byte {}; shipping the rest",
+                    archive, tailed.get().path(), offset);
+        }
+        run(pipeline, handler -> {
+            try (InputStream input = new GZIPInputStream(Files.newInputStream(archive), ARCHIVE_BUFFER_SIZE);
+                 ReadableByteChannel channel = Channels.newChannel(input)) {
+                if (skip(input, offset) == offset) {
+                    new LogFileTailer().read(channel, offset, handler);
                 }
             }
+            return true;
+        });
+        return !pipeline.failed;
+    }
 
-            if (!buffer.isEmpty()) {
-                sendBulk(buffer);
+    private static long skip(InputStream input, long count) throws IOException {
+        long skipped = 0L;
+        while (skipped < count) {
+            long step = input.skip(count - skipped);
+            if (step <= 0) {
+                break;
             }
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    static boolean isArchive(Path path) {
+        return path.getFileName().toString().endsWith(".gz");
+    }
 
-            fileOffsets.put(path, file.getFilePointer());
+    /**
+     * Ships a file from its checkpoint. Each file identity is owned by one worker at a time: a rotated file
+     * matched by a glob and drained by the task of its successor is only read by whichever claims it first.
+     */
+    private void processFile(Path path, LogLineParser parser, RunBudget budget) throws IOException {
+        if (!leaderElection.isLeader()) {
+            return; // lost the lease during the run; the new leader continues from the checkpoints
+        }
+        if (!budget.hasTimeLeft()) {
+            budget.exhausted = true;
+            return;
+        }
+        String fileKey = IngestionCheckpointStore.fileKeyOf(path);
+        if (!claim(fileKey)) {
+            log.debug("Skipping {}, the same file is already being ingested under another name", path);
+            return;
+        }
+        try {
+            String head = IngestionCheckpointStore.headOf(path);
+            Optional<IngestionCheckpointStore.Checkpoint> previous = checkpointStore.find(path);
+            if (previous.isPresent() && fileKey != null && !fileKey.equals(previous.get().fileKey())
+                    && !drainRotatedFile(path, previous.get(), parser, budget)) {
+                // keep the old identity on record for this path so the next run resumes the drain
+                return;
+            }
+
+            // a checkpoint of a deleted file whose identity was reused starts with another line
+            long pointer = checkpointStore.findByFileKey(fileKey, head)
+                    .or(() -> previous.filter(checkpoint -> Objects.equals(checkpoint.fileKey(), fileKey)
+                            && checkpoint.matches(head)))
+                    .map(IngestionCheckpointStore.Checkpoint::offset)
+                    .orElse(0L); // file not seen before
+            if (Files.size(path) < pointer) {
+                pointer = 0L; // file truncated
+            }
+
+            ingest(path, fileKey, head, pointer, parser, budget);
+        } finally {
+            release(fileKey);
         }
     }
 
-    private Optional<ObjectNode> parseLine(String line, Path source) {
-        String trimmed = line.trim();
-        if (trimmed.isEmpty()) {
-            return Optional.empty();
+    private boolean claim(String fileKey) {
+        return fileKey == null || activeFileKeys.add(fileKey);
+    }
+
+    private void release(String fileKey) {
+        if (fileKey != null) {
+            activeFileKeys.remove(fileKey);
         }
+    }
 
-        Instant parsedTimestamp = null;
-        String levelCandidate = null;
-        String message = trimmed;
+    /**
+     * The file at {@code path} was replaced since the last run. If the file we were reading was renamed
+     * inside the same directory (the usual rotation scheme), finish it before moving on to the new file.
+     *
+     * @return {@code false} if the rotated file still has unshipped lines, because the drain failed or ran
+     * out of budget
+     */
+    private boolean drainRotatedFile(
+            Path path, IngestionCheckpointStore.Checkpoint previous, LogLineParser parser, RunBudget budget)
+            throws IOException {
+        Optional<Path> rotated;
+        try (Stream<Path> siblings = Files.list(path.getParent())) {
+            rotated = siblings
+                    .filter(candidate -> !candidate.equals(path) && !isArchive(candidate))
+                    .filter(Files::isRegularFile)
+                    .filter(candidate -> previous.fileKey().equals(fileKeyOrNull(candidate)))
+                    .filter(candidate -> previous.matches(headOrNull(candidate)))
+                    .findFirst();
+        }
 
-        int firstSpace = trimmed.indexOf(' ');
-        if (firstSpace > 0) {
-            String potentialTimestamp = trimmed.substring(0, firstSpace).replace('[', ' ').replace(']', ' ').trim();
-            Instant timestamp = tryParseInstant(potentialTimestamp);
-            if (timestamp != null) {
-                parsedTimestamp = timestamp;
-                message = trimmed.substring(firstSpace + 1).trim();
-            }
+        if (rotated.isEmpty()) {
+            log.warn("{} was rotated but the previous file could not be found; unshipped lines after byte {} are lost",
+                    path, previous.offset());
+            return true;
         }
 
-        if (message.startsWith("[")) {
-            int closing = message.indexOf(']');
-            if (closing > 0) {
-                levelCandidate = message.substring(1, closing).trim();
-                message = message.substring(closing + 1).trim();
-            }
-        } else {
-            int secondSpace = message.indexOf(' ');
-            if (secondSpace > 0) {
-                String potentialLevel = message.substring(0, secondSpace);
-                if (potentialLevel.chars().allMatch(Character::isLetter)) {
-                    levelCandidate = potentialLevel.toUpperCase(Locale.ROOT);
-                    message = message.substring(secondSpace + 1).trim();
-                }
-            }
+        if (!claim(previous.fileKey())) {
+            return true; // its own worker is already shipping it
         }
+        try {
+            String head = headOrNull(rotated.get());
+            long offset = checkpointStore.findByFileKey(previous.fileKey(), head)
+                    .map(IngestionCheckpointStore.Checkpoint::offset)
+                    .orElse(previous.offset());
+            log.info("Draining rotated log file {} from byte {}", rotated.get(), offset);
+            return ingest(rotated.get(), previous.fileKey(), head, offset, parser, budget);
+        } finally {
+            release(previous.fileKey());
+        }
+    }
+
+    /**
+     * Ships a file from {@code pointer}, its checkpoint. If the previous run left a collapser for the file and
+     * the checkpoint has not moved since, reading resumes where that run stopped: the collapser already
+     * counted the repeats between the checkpoint and there, and keeps its windows open across runs.
+     * Otherwise the lines after the checkpoint are read again and collapsed afresh.
+     *
+     * @return {@code true} if the file was shipped up to its end
+     */
+    private boolean ingest(Path path, String fileKey, String head, long pointer, LogLineParser parser,
+                           RunBudget budget) throws IOException {
+        CollapseState carried = fileKey != null ? collapseStates.remove(fileKey) : null;
+        if (carried != null && (carried.checkpoint() != pointer || carried.resumeOffset() > Files.size(path))) {
+            carried = null;
+        }
+        long readFrom = carried != null ? carried.resumeOffset() : pointer;
+        LogStormCollapser collapser = carried != null ? carried.collapser() : newCollapser(ingestionProperties);
+        boolean keepsCollapser = collapser != null && fileKey != null;
+        FilePipeline pipeline = new FilePipeline(path, path.toString(), fileKey, head, pointer, readFrom, true,
+                parser, budget, collapser, keepsCollapser);
+        run(pipeline, handler -> {
+            tailers.get().tail(path, readFrom, handler);
+            return isIdle(path);
+        });
+        if (keepsCollapser && !pipeline.failed) {
+            collapseStates.put(fileKey,
+                    new CollapseState(collapser, pipeline.endOffset, pipeline.resumeOffset(), runNumber));
+        }
+        return !pipeline.failed && !pipeline.yielded;
+    }
+
+    /**
+     * A pending multi-line event at the end of the file is only shipped once the file has been quiet for
+     * the flush timeout; until then its first line stays the checkpoint and it is re-read next run, in
+     * case more continuation lines are still being written.
+     */
+    private boolean isIdle(Path path) throws IOException {
+        Instant lastWrite = Files.getLastModifiedTime(path).toInstant();
+        return !lastWrite.plus(ingestionProperties.getMultilineFlushTimeout()).isAfter(Instant.now());
+    }
+
+    /**
+     * Runs the reader stage on the calling thread while a parser task turns the lines into bulk batches,
+     * and returns once every batch of the file has been delivered or has failed.
+     */
+    private void run(FilePipeline pipeline, LineSource lineSource) throws IOException {
+        Future<?> parser = parserExecutor.submit(pipeline::parse);
+        boolean flushAtEnd = false;
+        try {
+            // a file cut short by the budget did not reach its end, so its last event may still grow
+            flushAtEnd = lineSource.read(pipeline::offer) && !pipeline.yielded;
+        } finally {
+            pipeline.finish(flushAtEnd, parser);
+        }
+    }
+
+    /**
+     * Stable prefix for the document ids of one file: a 64-bit FNV-1a hash of its path, file key and
+     * {@link IngestionCheckpointStore#headOf head}. The event's byte offset completes the id, so reading the
+     * same bytes again (retries, restarts, replays from the spool) overwrites the documents shipped before
+     * instead of duplicating them. The head keeps a new file that reuses a deleted file's inode at the same
+     * path from overwriting that file's documents.
+     */
+    static String documentIdPrefix(String path, String fileKey, String head) {
+        long hash = fnv1a(FNV_OFFSET_BASIS, path);
+        hash = (hash ^ '\n') * FNV_PRIME;
+        if (fileKey != null) {
+            hash = fnv1a(hash, fileKey);
+        }
+        hash = (hash ^ '\n') * FNV_PRIME;
+        if (head != null) {
+            hash = fnv1a(hash, head);
+        }
+        return String.format("%016x-", hash);
+    }
+
+    /**
+     * Collapser for one reader, or {@code null} if storms are not collapsed.
+     */
+    static LogStormCollapser newCollapser(LogIngestionProperties properties) {
+        Duration window = properties.getCollapseWindow();
+        if (window == null || window.isZero() || window.isNegative()) {
+            return null;
+        }
+        return new LogStormCollapser(window, properties.getCollapseMaxGroups(), properties.getCollapseLevels());
+    }
 
-        Instant timestamp = parsedTimestamp != null ? parsedTimestamp : Instant.now();
+    private static long fnv1a(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
 
-        ObjectNode document = objectMapper.createObjectNode();
-        document.put("timestamp", timestamp.toString());
-        if (levelCandidate != null) {
-            document.put("level", levelCandidate.toUpperCase(Locale.ROOT));
+    private static String fileKeyOrNull(Path path) {
+        try {
+            return IngestionCheckpointStore.fileKeyOf(path);
+        } catch (IOException exception) {
+            return null;
         }
-        document.put("message", message);
-        document.put("raw", line);
-        document.put("source", source.toString());
-        return Optional.of(document);
     }
 
-    private Instant tryParseInstant(String candidate) {
-        if (candidate == null || candidate.isEmpty()) {
+    private static String headOrNull(Path path) {
+        try {
+            return IngestionCheckpointStore.headOf(path);
+        } catch (IOException exception) {
             return null;
         }
-        for (DateTimeFormatter formatter : TIMESTAMP_FORMATS) {
+    }
+
+    @FunctionalInterface
+    private interface LineSource {
+        /**
+         * Feeds every line to the handler.
+         *
+         * @return whether an event still pending at the end of the input may be shipped as it is
+         */
+        boolean read(LogFileTailer.LineHandler handler) throws IOException;
+    }
+
+    private static final class LineChunk {
+        private final String[] lines = new String[CHUNK_LINES];
+        private final long[] startOffsets = new long[CHUNK_LINES];
+        private final long[] endOffsets = new long[CHUNK_LINES];
+        private int size;
+        private boolean last;
+        private boolean flushAtEnd;
+
+        private boolean isFull() {
+            return size == CHUNK_LINES;
+        }
+
+        private void clear() {
+            Arrays.fill(lines, 0, size, null);
+            size = 0;
+            last = false;
+            flushAtEnd = false;
+        }
+    }
+
+    /**
+     * Limits of one run. The byte budget applies to each file separately, so every file gets its slice;
+     * the time budget is shared by the whole run.
+     */
+    private static final class RunBudget {
+        private static final RunBudget UNLIMITED = new RunBudget(0L, Duration.ZERO);
+
+        private final long bytesPerFile;
+        private final long deadlineNanos;
+        private final boolean timed;
+        private volatile boolean exhausted;
+
+        private RunBudget(long bytesPerFile, Duration time) {
+            this.bytesPerFile = bytesPerFile > 0 ? bytesPerFile : Long.MAX_VALUE;
+            this.timed = time != null && !time.isZero() && !time.isNegative();
+            this.deadlineNanos = timed ? System.nanoTime() + time.toNanos() : 0L;
+        }
+
+        private boolean hasTimeLeft() {
+            return !timed || System.nanoTime() - deadlineNanos < 0;
+        }
+    }
+
+    /**
+     * A file's collapser between runs, valid while the file's checkpoint is still {@code checkpoint}.
+     */
+    private record CollapseState(LogStormCollapser collapser, long checkpoint, long resumeOffset, long run) {
+    }
+
+    private static final class Batch {
+        private final long endOffset;
+        private boolean done;
+        private boolean delivered;
+
+        private Batch(long endOffset) {
+            this.endOffset = endOffset;
+        }
+    }
+
+    /**
+     * Reader, parser and commit state for one pass over one file.
+     * <p>
+     * The reader fills {@link LineChunk}s from a fixed pool and queues them for the parser, so it can run at
+     * most {@code readAheadLines} ahead. The parser stitches and serialises events into writers from the
+     * {@link BulkDispatcher}, which ships sealed batches concurrently. Batches may complete out of order: the
+     * checkpoint only moves to the end of the longest run of delivered batches from the start, and once a
+     * batch fails it stays in front of it, so everything after is read again next run.
+     */
+    private final class FilePipeline {
+        private final Path path;
+        private final String source;
+        private final String fileKey;
+        private final boolean checkpointed;
+        private final LogEventStitcher stitcher;
+        private final LogStormCollapser collapser;
+        private final boolean keepsCollapser;
+        private final BlockingQueue<LineChunk> filledChunks;
+        private final BlockingQueue<LineChunk> freeChunks;
+        private final RunBudget budget;
+        private final long firstOffset;
+        private String idPrefix;
+        private final Consumer<LogEvent> emitter = this::emit;
+        private final Consumer<LogEvent> sink;
+        private volatile boolean failed;
+        private volatile boolean yielded;
+
+        // reader state
+        private LineChunk chunk;
+
+        // parser state
+        private BulkPayloadWriter payload;
+        private long readOffset;
+        private long endOffset;
+        private long sealedOffset;
+
+        // commit state, guarded by this
+        private final Deque<Batch> batches = new ArrayDeque<>();
+        private int outstanding;
+        private boolean abandoned;
+        private String head;
+
+        /**
+         * @param head           {@link IngestionCheckpointStore#headOf head} of the file, or {@code null} while
+         *                       its first line is incomplete
+         * @param checkpoint     offset the file is checkpointed at
+         * @param offset         offset reading starts at; past the checkpoint when a carried-over collapser
+         *                       already holds the repeats in between
+         * @param keepsCollapser whether the collapser outlives the run, so summaries are only released once
+         *                       their window has ended instead of at the end of the run
+         */
+        private FilePipeline(Path path, String source, String fileKey, String head, long checkpoint, long offset,
+                             boolean checkpointed, LogLineParser parser, RunBudget budget,
+                             LogStormCollapser collapser, boolean keepsCollapser) {
+            this.path = path;
+            this.source = source;
+            this.fileKey = fileKey;
+            this.head = head;
+            this.checkpointed = checkpointed;
+            // a live file whose first line was still incomplete gets its prefix once an event was read
+            this.idPrefix = head != null || !checkpointed ? documentIdPrefix(source, fileKey, head) : null;
+            this.stitcher = new LogEventStitcher(parser, ingestionProperties.getMultilineMaxLines());
+            this.collapser = collapser;
+            this.keepsCollapser = keepsCollapser;
+            Consumer<LogEvent> collapsing = collapser != null ? event -> collapser.accept(event, emitter) : emitter;
+            // dropped events must not open a collapse window or count as repeats
+            this.sink = ingestRuleSet.isEmpty() ? collapsing : event -> {
+                if (ingestRuleSet.accept(event)) {
+                    collapsing.accept(event);
+                }
+            };
+            int chunks = Math.max(2, ingestionProperties.getReadAheadLines() / CHUNK_LINES);
+            this.filledChunks = new ArrayBlockingQueue<>(chunks);
+            this.freeChunks = new ArrayBlockingQueue<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                freeChunks.add(new LineChunk());
+            }
+            this.budget = budget;
+            this.firstOffset = offset;
+            this.readOffset = offset;
+            this.endOffset = checkpoint;
+            this.sealedOffset = checkpoint;
+        }
+
+        /**
+         * Reader stage: queues the line, blocking while the parser is {@code readAheadLines} behind, and stops
+         * reading once the run's budget is used up.
+         */
+        private boolean offer(String line, long lineStartOffset, long lineEndOffset) {
+            if (failed) {
+                return false;
+            }
             try {
-                if (formatter == DateTimeFormatter.ISO_LOCAL_DATE_TIME) {
-                    LocalDateTime localDateTime = LocalDateTime.parse(candidate, formatter);
-                    return localDateTime.atZone(ZoneId.systemDefault()).toInstant();
-                } else if (formatter == DateTimeFormatter.ISO_INSTANT) {
-                    return Instant.parse(candidate);
+                if (chunk == null) {
+                    chunk = freeChunks.take();
+                }
+                chunk.lines[chunk.size] = line;
+                chunk.startOffsets[chunk.size] = lineStartOffset;
+                chunk.endOffsets[chunk.size] = lineEndOffset;
+                chunk.size++;
+                boolean chunkFull = chunk.isFull();
+                if (chunkFull) {
+                    filledChunks.put(chunk);
+                    chunk = null;
                 }
-                return OffsetDateTime.parse(candidate, formatter).toInstant();
-            } catch (DateTimeParseException ignored) {
-                // try the next formatter
+                if (lineEndOffset - firstOffset >= budget.bytesPerFile || (chunkFull && !budget.hasTimeLeft())) {
+                    yielded = true;
+                    budget.exhausted = true;
+                    return false;
+                }
+                return true;
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                failed = true;
+                return false;
             }
         }
-        return null;
-    }
 
-    private void sendBulk(List<ObjectNode> documents) {
-        if (documents.isEmpty()) {
-            return;
+        /**
+         * Ends the reader stage and waits for the parser and every batch in flight.
+         */
+        private void finish(boolean flushAtEnd, Future<?> parser) {
+            try {
+                LineChunk last = chunk != null ? chunk : freeChunks.take();
+                chunk = null;
+                last.last = true;
+                last.flushAtEnd = flushAtEnd;
+                filledChunks.put(last);
+                parser.get();
+                awaitBatches();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                parser.cancel(true);
+                failed = true;
+            } catch (ExecutionException exception) {
+                log.error("Failed to parse log lines from {}", path, exception.getCause());
+                failed = true;
+            }
         }
 
-        String index = elasticsearchProperties.getIndex();
-        StringBuilder payload = new StringBuilder();
+        /**
+         * Parser stage. Keeps consuming until the last chunk even after a failure, so the reader never
+         * blocks on a full queue.
+         */
+        private void parse() {
+            try {
+                while (true) {
+                    LineChunk next = filledChunks.take();
+                    try {
+                        if (!failed) {
+                            process(next);
+                        }
+                        if (next.last) {
+                            if (!failed) {
+                                complete(next.flushAtEnd);
+                            }
+                            return;
+                        }
+                    } catch (RuntimeException exception) {
+                        log.error("Failed to parse log lines from {}", path, exception);
+                        ingestionMetrics.parseError();
+                        failed = true;
+                        if (next.last) {
+                            return;
+                        }
+                    } finally {
+                        next.clear();
+                        freeChunks.offer(next);
+                    }
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                failed = true;
+            } finally {
+                if (payload != null) {
+                    bulkDispatcher.release(payload);
+                    payload = null;
+                }
+            }
+        }
 
-        for (ObjectNode document : documents) {
-            ObjectNode indexInstruction = objectMapper.createObjectNode();
-            ObjectNode indexDetails = objectMapper.createObjectNode();
-            indexDetails.put("_index", index);
-            indexInstruction.set("index", indexDetails);
+        private void process(LineChunk lines) throws InterruptedException {
+            if (lines.size > 0) {
+                ingestionMetrics.linesRead(lines.size, lines.endOffsets[lines.size - 1] - lines.startOffsets[0]);
+            }
+            for (int i = 0; i < lines.size && !failed; i++) {
+                if (payload == null) {
+                    payload = bulkDispatcher.acquire();
+                }
+                stitcher.accept(lines.lines[i], lines.startOffsets[i], source, sink);
+                readOffset = lines.endOffsets[i];
+                updateEndOffset();
 
-            payload.append(indexInstruction.toString()).append('\n');
-            payload.append(document.toString()).append('\n');
+                if (payload.size() >= ingestionProperties.getBulkSize()
+                        || payload.byteSize() >= bulkShipper.targetBatchBytes()) {
+                    seal();
+                }
+            }
         }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_NDJSON);
+        /**
+         * Never checkpoints past the first line of an event that may still grow, nor past a repeat the
+         * collapser is holding back.
+         */
+        private void updateEndOffset() {
+            endOffset = resumeOffset();
+            if (collapser != null) {
+                endOffset = Math.min(endOffset, collapser.watermark());
+            }
+        }
 
-        try {
-            elasticsearchRestTemplate.postForEntity(
-                    "/_bulk?refresh=false",
-                    new HttpEntity<>(payload.toString(), headers),
-                    String.class);
-        } catch (RestClientException exception) {
-            log.error("Failed to ship log batch to Elasticsearch", exception);
+        /**
+         * Where the next run continues reading if it keeps the collapser: after everything the collapser
+         * has seen, but before an event that may still grow.
+         */
+        private long resumeOffset() {
+            return stitcher.hasPending() ? stitcher.pendingStartOffset() : readOffset;
+        }
+
+        private void emit(LogEvent event) {
+            if (idPrefix == null) {
+                idPrefix = documentIdPrefix(source, fileKey, headOrNull(path));
+            }
+            event.setId(idPrefix + event.getOffset());
+            payload.add(event);
+        }
+
+        private void complete(boolean flushAtEnd) throws InterruptedException {
+            if (flushAtEnd && stitcher.hasPending()) {
+                if (payload == null) {
+                    payload = bulkDispatcher.acquire();
+                }
+                stitcher.flush(sink);
+            }
+            if (collapser != null && collapser.hasPending()) {
+                if (payload == null) {
+                    payload = bulkDispatcher.acquire();
+                }
+                if (keepsCollapser) {
+                    collapser.expire(Instant.now(), emitter);
+                } else {
+                    collapser.flush(emitter);
+                }
+            }
+            updateEndOffset();
+            // events shipped behind a held repeat leave the checkpoint where it is, but must still be sent
+            if (endOffset > sealedOffset || (payload != null && !payload.isEmpty())) {
+                seal();
+            }
+        }
+
+        /**
+         * Hands the current payload to the shipper stage; the checkpoint moves to {@link #endOffset} once
+         * it and every batch before it were delivered.
+         */
+        private void seal() {
+            Batch batch = new Batch(endOffset);
+            synchronized (this) {
+                batches.add(batch);
+                outstanding++;
+            }
+            sealedOffset = endOffset;
+            if (payload == null || payload.isEmpty()) {
+                onCompleted(batch, true);
+                return;
+            }
+            BulkPayloadWriter sealed = payload;
+            payload = null;
+            bulkDispatcher.dispatch(sealed, delivered -> onCompleted(batch, delivered));
+        }
+
+        private synchronized void onCompleted(Batch batch, boolean delivered) {
+            try {
+                batch.done = true;
+                batch.delivered = delivered;
+                if (!delivered) {
+                    failed = true;
+                }
+                long committed = -1L;
+                while (!batches.isEmpty() && batches.peek().done && batches.peek().delivered) {
+                    committed = batches.poll().endOffset;
+                }
+                if (committed >= 0 && checkpointed && !abandoned) {
+                    checkpointStore.commit(path, fileKey, committed, head(committed));
+                }
+            } catch (RuntimeException exception) {
+                log.error("Failed to checkpoint {}", path, exception);
+                failed = true;
+            } finally {
+                outstanding--;
+                notifyAll();
+            }
+        }
+
+        /**
+         * The file's head, read once its first line has been committed; lets a later archive of this file
+         * be matched with its checkpoint.
+         */
+        private String head(long committed) {
+            if (head == null && committed > 0) {
+                try {
+                    head = IngestionCheckpointStore.headOf(path);
+                } catch (IOException exception) {
+                    log.debug("Could not read the head of {}", path, exception);
+                }
+            }
+            return head;
+        }
+
+        /**
+         * Waits at most {@link LogIngestionProperties#getBatchTimeout()} for the batches in flight. On timeout
+         * the run fails and stops checkpointing, so a stuck request cannot hold up every later run.
+         */
+        private synchronized void awaitBatches() throws InterruptedException {
+            long deadline = System.nanoTime() + ingestionProperties.getBatchTimeout().toNanos();
+            while (outstanding > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    log.error("Gave up waiting for {} bulk requests of {}; the rest is read again next run",
+                            outstanding, path);
+                    abandoned = true;
+                    failed = true;
+                    return;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
         }
     }
-}
\ No newline at end of file
+}
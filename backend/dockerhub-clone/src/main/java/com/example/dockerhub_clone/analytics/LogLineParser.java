@@ -0,0 +1,445 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single-pass parser for plain-text log lines of the form {@code [timestamp] [level] message}, with a fast
+ * path for structured (logstash-style) JSON lines.
+ * <p>
+ * The line is scanned by index and results are written into a caller-owned {@link LogEvent}; the only
+ * per-line allocation is the message substring. A leading token is treated as a timestamp only when its
+ * characters have the ISO-8601 shape {@code yyyy-MM-ddTHH:mm[:ss[.fraction]][Z|+HH:MM]}, and it is then
+ * decoded directly from its digits, so lines without a timestamp never pay for a failed
+ * {@code DateTimeFormatter} parse. A level is recognised only if it is one of the standard level names,
+ * optionally wrapped in brackets.
+ * <p>
+ * A line starting with <code>{</code> is read with a streaming {@link JsonParser} instead: {@code @timestamp},
+ * {@code level}, {@code message}, {@code logger_name}, {@code thread_name} and {@code stack_trace} are mapped
+ * straight onto the event and the text heuristics are skipped. Lines that turn out not to be a JSON object
+ * are parsed as text.
+ * <p>
+ * A parser created with a {@link LinePattern} tries that layout first and takes every field it extracts,
+ * including the PID, thread, logger and request id; lines the pattern does not match fall back to the
+ * heuristics above.
+ * <p>
+ * Instances are immutable apart from a thread-safe counter of lines that fell back to the heuristics and a
+ * per-thread scratch array for the pattern's field bounds, and can be shared between threads.
+ */
+public class LogLineParser {
+
+    private static final String[] KNOWN_LEVELS = {
+            "TRACE", "DEBUG", "INFO", "WARN", "WARNING", "ERROR", "FATAL", "SEVERE"
+    };
+    // stack trace lines that are not indented, checked before a permissive pattern can claim them
+    private static final String[] CONTINUATION_PREFIXES = {"Caused by:", "Suppressed:", "at ", "... "};
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final ZoneId localZone;
+    private final LinePattern pattern;
+    private final LongAdder unparsedLines = new LongAdder();
+    private final ThreadLocal<int[]> patternBounds;
+
+    public LogLineParser() {
+        this(ZoneId.systemDefault());
+    }
+
+    /**
+     * @param localZone zone applied to timestamps written without an offset
+     */
+    public LogLineParser(ZoneId localZone) {
+        this(localZone, null);
+    }
+
+    /**
+     * @param localZone zone applied to timestamps written without an offset
+     * @param pattern layout of the source's lines, or {@code null} to rely on the heuristics only
+     */
+    public LogLineParser(ZoneId localZone, LinePattern pattern) {
+        this.localZone = localZone;
+        this.pattern = pattern;
+        this.patternBounds = pattern != null ? ThreadLocal.withInitial(() -> new int[2 * pattern.fieldCount()]) : null;
+    }
+
+    /**
+     * Parses {@code line} into {@code event}, replacing whatever the holder contained before.
+     *
+     * @return {@code false} if the line is blank and produced no event
+     */
+    public boolean parse(String line, String source, LogEvent event) {
+        event.reset();
+
+        int start = 0;
+        int end = line.length();
+        while (start < end && line.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return false;
+        }
+        if (line.charAt(start) == '{' && line.charAt(end - 1) == '}') {
+            if (parseJson(line, event)) {
+                event.setRaw(line);
+                event.setSource(source);
+                return true;
+            }
+            unparsedLines.increment();
+            event.reset();
+        }
+        if (pattern != null) {
+            if (parsePattern(line, event)) {
+                event.setRaw(line);
+                event.setSource(source);
+                return true;
+            }
+            unparsedLines.increment();
+            event.reset();
+        }
+
+        int messageStart = start;
+        int firstSpace = line.indexOf(' ', start);
+        if (firstSpace > start && firstSpace < end) {
+            int tokenStart = start;
+            int tokenEnd = firstSpace;
+            while (tokenStart < tokenEnd && line.charAt(tokenStart) == '[') {
+                tokenStart++;
+            }
+            while (tokenEnd > tokenStart && line.charAt(tokenEnd - 1) == ']') {
+                tokenEnd--;
+            }
+            Instant timestamp = parseTimestamp(line, tokenStart, tokenEnd);
+            if (timestamp != null) {
+                event.setTimestamp(timestamp);
+                messageStart = skipWhitespace(line, firstSpace + 1, end);
+            }
+        }
+
+        messageStart = parseLevel(line, messageStart, end, event);
+
+        if (event.getTimestamp() == null) {
+            event.setTimestamp(Instant.now());
+        }
+        event.setMessage(line.substring(messageStart, end));
+        event.setRaw(line);
+        event.setSource(source);
+        return true;
+    }
+
+    /**
+     * Number of lines that looked like JSON but were not, or did not match the source pattern, and were
+     * parsed with the text heuristics instead.
+     */
+    public long unparsedLines() {
+        return unparsedLines.sum();
+    }
+
+    /**
+     * Tells whether a line begins a new event, i.e. starts with a recognisable timestamp or level. Indented
+     * lines, stack frames and {@code Caused by:} lines do not, and belong to the event before them.
+     */
+    public boolean startsEvent(String line) {
+        int end = line.length();
+        if (end == 0 || line.charAt(0) <= ' ') {
+            return false;
+        }
+        if (line.charAt(0) == '{') {
+            return true; // structured lines carry their stack trace inline
+        }
+        for (String prefix : CONTINUATION_PREFIXES) {
+            if (line.startsWith(prefix)) {
+                return false;
+            }
+        }
+
+        int tokenStart = 0;
+        int tokenEnd = line.indexOf(' ');
+        if (tokenEnd < 0) {
+            tokenEnd = end;
+        }
+        while (tokenStart < tokenEnd && line.charAt(tokenStart) == '[') {
+            tokenStart++;
+        }
+        while (tokenEnd > tokenStart && line.charAt(tokenEnd - 1) == ']') {
+            tokenEnd--;
+        }
+        return hasTimestampShape(line, tokenStart, tokenEnd) || knownLevel(line, tokenStart, tokenEnd) != null
+                || (pattern != null && pattern.match(line, patternBounds.get()));
+    }
+
+    /**
+     * @return {@code false} if the line does not match the pattern or its timestamp field is not a timestamp
+     */
+    private boolean parsePattern(String line, LogEvent event) {
+        int[] bounds = patternBounds.get();
+        if (!pattern.match(line, bounds)) {
+            return false;
+        }
+        for (int i = 0; i < pattern.fieldCount(); i++) {
+            int from = bounds[2 * i];
+            int to = bounds[2 * i + 1];
+            switch (pattern.field(i)) {
+                case TIMESTAMP -> {
+                    while (from < to && line.charAt(from) == '[') {
+                        from++;
+                    }
+                    while (to > from && line.charAt(to - 1) == ']') {
+                        to--;
+                    }
+                    Instant timestamp = parseTimestamp(line, from, to);
+                    if (timestamp == null) {
+                        return false;
+                    }
+                    event.setTimestamp(timestamp);
+                }
+                case LEVEL -> event.setLevel(knownLevel(line, from, to));
+                case PID -> event.setPid(fieldValue(line, from, to));
+                case THREAD -> event.setThread(fieldValue(line, from, to));
+                case LOGGER -> event.setLogger(fieldValue(line, from, to));
+                case REQUEST_ID -> event.setRequestId(fieldValue(line, from, to));
+                case MESSAGE -> event.setMessage(line.substring(from, to));
+                case SKIP -> {
+                    // matched for its position only
+                }
+            }
+        }
+
+        if (event.getTimestamp() == null) {
+            event.setTimestamp(Instant.now());
+        }
+        if (event.getMessage() == null) {
+            event.setMessage("");
+        }
+        return true;
+    }
+
+    private static String fieldValue(String line, int from, int to) {
+        return from < to ? line.substring(from, to) : null;
+    }
+
+    /**
+     * @return {@code false} if the line is not a well-formed JSON object
+     */
+    private boolean parseJson(String line, LogEvent event) {
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "@timestamp" -> {
+                        String text = parser.getText();
+                        event.setTimestamp(parseTimestamp(text, 0, text.length()));
+                    }
+                    case "level" -> {
+                        String text = parser.getText();
+                        String level = knownLevel(text, 0, text.length());
+                        event.setLevel(level != null ? level : text);
+                    }
+                    case "message" -> event.setMessage(parser.getText());
+                    case "logger_name" -> event.setLogger(parser.getText());
+                    case "thread_name" -> event.setThread(parser.getText());
+                    case "stack_trace" -> event.setStackTrace(parser.getText());
+                    default -> {
+                        // other fields (MDC, version, level_value) are kept in raw only
+                    }
+                }
+            }
+            if (token != JsonToken.END_OBJECT || parser.nextToken() != null) {
+                return false;
+            }
+        } catch (IOException exception) {
+            return false;
+        }
+
+        if (event.getTimestamp() == null) {
+            event.setTimestamp(Instant.now());
+        }
+        if (event.getMessage() == null) {
+            event.setMessage("");
+        }
+        return true;
+    }
+
+    private int parseLevel(String line, int from, int end, LogEvent event) {
+        if (from >= end) {
+            return from;
+        }
+
+        if (line.charAt(from) == '[') {
+            int closing = line.indexOf(']', from + 1);
+            if (closing < 0 || closing >= end) {
+                return from;
+            }
+            int levelStart = skipWhitespace(line, from + 1, closing);
+            int levelEnd = closing;
+            while (levelEnd > levelStart && line.charAt(levelEnd - 1) <= ' ') {
+                levelEnd--;
+            }
+            String level = knownLevel(line, levelStart, levelEnd);
+            if (level == null) {
+                return from;
+            }
+            event.setLevel(level);
+            return skipWhitespace(line, closing + 1, end);
+        }
+
+        int tokenEnd = from;
+        while (tokenEnd < end && Character.isLetter(line.charAt(tokenEnd))) {
+            tokenEnd++;
+        }
+        if (tokenEnd >= end || line.charAt(tokenEnd) != ' ') {
+            return from;
+        }
+        String level = knownLevel(line, from, tokenEnd);
+        if (level == null) {
+            return from;
+        }
+        event.setLevel(level);
+        return skipWhitespace(line, tokenEnd + 1, end);
+    }
+
+    private static String knownLevel(String line, int from, int to) {
+        int length = to - from;
+        for (String level : KNOWN_LEVELS) {
+            if (level.length() == length && line.regionMatches(true, from, level, 0, length)) {
+                return level;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasTimestampShape(String value, int from, int to) {
+        return to - from >= 16
+                && value.charAt(from + 4) == '-'
+                && value.charAt(from + 7) == '-'
+                && value.charAt(from + 10) == 'T'
+                && value.charAt(from + 13) == ':'
+                && isDigit(value.charAt(from))
+                && isDigit(value.charAt(from + 11));
+    }
+
+    private Instant parseTimestamp(String value, int from, int to) {
+        if (!hasTimestampShape(value, from, to)) {
+            return null;
+        }
+
+        int year = digits(value, from, 4);
+        int month = digits(value, from + 5, 2);
+        int day = digits(value, from + 8, 2);
+        int hour = digits(value, from + 11, 2);
+        int minute = digits(value, from + 14, 2);
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0) {
+            return null;
+        }
+
+        int position = from + 16;
+        int second = 0;
+        int nano = 0;
+        if (position < to && value.charAt(position) == ':') {
+            if (position + 3 > to || (second = digits(value, position + 1, 2)) < 0) {
+                return null;
+            }
+            position += 3;
+            if (position < to && (value.charAt(position) == '.' || value.charAt(position) == ',')) {
+                position++;
+                int fractionDigits = 0;
+                while (position < to && fractionDigits < 9 && isDigit(value.charAt(position))) {
+                    nano = nano * 10 + (value.charAt(position) - '0');
+                    position++;
+                    fractionDigits++;
+                }
+                if (fractionDigits == 0) {
+                    return null;
+                }
+                for (int i = fractionDigits; i < 9; i++) {
+                    nano *= 10;
+                }
+            }
+        }
+
+        try {
+            LocalDateTime dateTime = LocalDateTime.of(year, month, day, hour, minute, second, nano);
+            if (position == to) {
+                return dateTime.atZone(localZone).toInstant();
+            }
+            ZoneOffset offset = parseOffset(value, position, to);
+            return offset != null ? dateTime.toInstant(offset) : null;
+        } catch (DateTimeException exception) {
+            // right shape, impossible value (e.g. month 13); treat as not a timestamp
+            return null;
+        }
+    }
+
+    private static ZoneOffset parseOffset(String value, int from, int to) {
+        char sign = value.charAt(from);
+        if (sign == 'Z' && from + 1 == to) {
+            return ZoneOffset.UTC;
+        }
+        if ((sign != '+' && sign != '-') || to - from < 3) {
+            return null;
+        }
+
+        int hours = digits(value, from + 1, 2);
+        int position = from + 3;
+        if (position < to && value.charAt(position) == ':') {
+            position++;
+        }
+        int minutes = 0;
+        if (position < to) {
+            if (position + 2 != to || (minutes = digits(value, position, 2)) < 0) {
+                return null;
+            }
+        }
+        if (hours < 0) {
+            return null;
+        }
+        return sign == '-'
+                ? ZoneOffset.ofHoursMinutes(-hours, -minutes)
+                : ZoneOffset.ofHoursMinutes(hours, minutes);
+    }
+
+    private static int digits(String value, int from, int count) {
+        int result = 0;
+        for (int i = from; i < from + count; i++) {
+            char ch = value.charAt(i);
+            if (!isDigit(ch)) {
+                return -1;
+            }
+            result = result * 10 + (ch - '0');
+        }
+        return result;
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    private static int skipWhitespace(String value, int from, int to) {
+        int position = from;
+        while (position < to && value.charAt(position) <= ' ') {
+            position++;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.dockerhub_clone.analytics;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A configured log location: either a literal file or a glob such as {@code logs/*.log}.
+ * <p>
+ * Globs are matched against absolute paths. Only the directory before the first wildcard segment is
+ * walked, and only as deep as the pattern reaches unless it contains {@code **}.
+ */
+public class LogPathPattern {
+
+    private final String pattern;
+    private final Path baseDirectory;
+    private final PathMatcher matcher;
+    private final Path literalPath;
+    private final int maxDepth;
+
+    private LogPathPattern(String pattern, Path baseDirectory, PathMatcher matcher, Path literalPath, int maxDepth) {
+        this.pattern = pattern;
+        this.baseDirectory = baseDirectory;
+        this.matcher = matcher;
+        this.literalPath = literalPath;
+        this.maxDepth = maxDepth;
+    }
+
+    public static LogPathPattern compile(String configuredPath) {
+        Path absolute = Paths.get(configuredPath).toAbsolutePath().normalize();
+        if (!isGlob(configuredPath)) {
+            return new LogPathPattern(configuredPath, absolute.getParent(), null, absolute, 1);
+        }
+
+        Path base = absolute.getRoot();
+        int depth = 0;
+        boolean reachedGlob = false;
+        boolean recursive = false;
+        for (Path segment : absolute) {
+            String name = segment.toString();
+            if (!reachedGlob && !isGlob(name)) {
+                base = base.resolve(segment);
+            } else {
+                reachedGlob = true;
+                depth++;
+                recursive |= name.contains("**");
+            }
+        }
+
+        String glob = absolute.toString().replace("\\", "\\\\");
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        return new LogPathPattern(configuredPath, base, matcher, null, recursive ? Integer.MAX_VALUE : depth);
+    }
+
+    public static List<LogPathPattern> compileAll(List<String> configuredPaths) {
+        List<LogPathPattern> patterns = new ArrayList<>(configuredPaths.size());
+        for (String configuredPath : configuredPaths) {
+            patterns.add(compile(configuredPath));
+        }
+        return patterns;
+    }
+
+    private static boolean isGlob(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '*' || ch == '?' || ch == '[' || ch == '{') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Directory that has to be watched to see every file this pattern can match.
+     */
+    public Path getBaseDirectory() {
+        return baseDirectory;
+    }
+
+    /**
+     * Whether files this pattern can match may sit directly in {@code directory}, so that it has to be
+     * watched too: the base directory itself, and subdirectories up to the depth the pattern reaches.
+     */
+    public boolean reaches(Path directory) {
+        Path normalized = directory.toAbsolutePath().normalize();
+        if (baseDirectory == null || !normalized.startsWith(baseDirectory)) {
+            return false;
+        }
+        int depth = normalized.equals(baseDirectory) ? 0 : baseDirectory.relativize(normalized).getNameCount();
+        return depth < maxDepth;
+    }
+
+    public boolean isLiteral() {
+        return literalPath != null;
+    }
+
+    public boolean matches(Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        return literalPath != null ? literalPath.equals(normalized) : matcher.matches(normalized);
+    }
+
+    /**
+     * Lists the regular files currently matching this pattern, least recently modified first so rotated
+     * files are drained before the live file that replaced them.
+     */
+    public List<Path> resolve() throws IOException {
+        if (literalPath != null) {
+            return Files.isRegularFile(literalPath) ? List.of(literalPath) : List.of();
+        }
+        if (baseDirectory == null || !Files.isDirectory(baseDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> candidates = Files.walk(baseDirectory, maxDepth)) {
+            return candidates
+                    .filter(matcher::matches)
+                    .filter(Files::isRegularFile)
+                    .sorted(Comparator.comparing(LogPathPattern::lastModified))
+                    .toList();
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException exception) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
@@ -8,6 +8,8 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
@@ -31,6 +33,30 @@ public class LogQueryParser {
         return new ParseResult(translated);
     }
 
+    /**
+     * Compiles the query into a predicate over parsed events that follows the Elasticsearch query it
+     * translates to: keyword fields match exactly, and a missing field never matches a positive condition.
+     * Negated conditions ({@code !=}, {@code NOT CONTAINS}, {@code NOT}) are the complement, as with
+     * Elasticsearch's {@code NOT}, so an event without the field does match them.
+     * <p>
+     * Text fields ({@code message}, {@code raw}, {@code stack_trace}) only approximate Elasticsearch's phrase
+     * match: the value is searched as a case-insensitive substring, without tokenizing. The predicate
+     * therefore also matches inside words ({@code "error"} matches {@code "errors"}) and does not treat
+     * differing punctuation or whitespace between words as equal.
+     * <p>
+     * The query is parsed once; evaluating the predicate does not allocate.
+     */
+    public Predicate<LogEvent> compile(String input) {
+        if (!StringUtils.hasText(input)) {
+            throw new IllegalArgumentException("Query cannot be empty");
+        }
+
+        Parser parser = new Parser(input);
+        Node root = parser.parseExpression();
+        parser.expect(TokenType.EOF, "Unexpected token after end of expression");
+        return root.toPredicate();
+    }
+
     public record ParseResult(String queryString) {}
 
     private enum LogicalOperator {
@@ -51,6 +77,8 @@ public class LogQueryParser {
 
     private interface Node {
         String toQueryString();
+
+        Predicate<LogEvent> toPredicate();
     }
 
     private static final class ConditionNode implements Node {
@@ -68,6 +96,11 @@ public class LogQueryParser {
         public String toQueryString() {
             return translateCondition(field, operator, value);
         }
+
+        @Override
+        public Predicate<LogEvent> toPredicate() {
+            return compileCondition(field, operator, value);
+        }
     }
 
     private static final class NotNode implements Node {
@@ -82,6 +115,11 @@ public class LogQueryParser {
             String expression = child.toQueryString();
             return "NOT (" + expression + ")";
         }
+
+        @Override
+        public Predicate<LogEvent> toPredicate() {
+            return child.toPredicate().negate();
+        }
     }
 
     private static final class BinaryNode implements Node {
@@ -99,6 +137,15 @@ public class LogQueryParser {
         public String toQueryString() {
             return "(" + left.toQueryString() + " " + operator.name() + " " + right.toQueryString() + ")";
         }
+
+        @Override
+        public Predicate<LogEvent> toPredicate() {
+            Predicate<LogEvent> leftPredicate = left.toPredicate();
+            Predicate<LogEvent> rightPredicate = right.toPredicate();
+            return operator == LogicalOperator.AND
+                    ? leftPredicate.and(rightPredicate)
+                    : leftPredicate.or(rightPredicate);
+        }
     }
 
     private static final class Parser {
@@ -344,10 +391,71 @@ public class LogQueryParser {
             case "text", "raw" -> translateRawCondition(operator, value);
             case "timestamp" -> translateTimestampCondition(operator, value);
             case "source" -> translateSourceCondition(operator, value);
+            case "logger", "thread", "pid" -> translateFieldCondition(field, operator, value);
+            case "request_id", "requestid" -> translateFieldCondition("request_id", operator, value);
+            case "stack_trace", "stacktrace" -> translateFieldCondition("stack_trace", operator, value);
+            default -> throw new IllegalArgumentException("Unsupported field '" + field + "'");
+        };
+    }
+
+    private static Predicate<LogEvent> compileCondition(String field, ConditionOperator operator, String value) {
+        return switch (field) {
+            case "level" -> {
+                String normalized = value.toUpperCase(Locale.ROOT);
+                yield compileMatch(operator, "level", event -> normalized.equalsIgnoreCase(event.getLevel()));
+            }
+            case "message" -> compilePhrase(operator, "message", LogEvent::getMessage, value);
+            case "text", "raw" -> compilePhrase(operator, "raw", LogEvent::getRaw, value);
+            case "stack_trace", "stacktrace" -> compilePhrase(operator, "stack_trace", LogEvent::getStackTrace, value);
+            case "source" -> compileMatch(operator, field, event -> value.equals(event.getSource()));
+            case "logger" -> compileMatch(operator, field, event -> value.equals(event.getLogger()));
+            case "thread" -> compileMatch(operator, field, event -> value.equals(event.getThread()));
+            case "pid" -> compileMatch(operator, field, event -> value.equals(event.getPid()));
+            case "request_id", "requestid" ->
+                    compileMatch(operator, "request_id", event -> value.equals(event.getRequestId()));
+            case "timestamp" -> compileTimestamp(operator, parseTimestamp(value));
             default -> throw new IllegalArgumentException("Unsupported field '" + field + "'");
         };
     }
 
+    private static Predicate<LogEvent> compileMatch(
+            ConditionOperator operator, String field, Predicate<LogEvent> clause) {
+        return switch (operator) {
+            case EQ, CONTAINS -> clause;
+            case NEQ, NOT_CONTAINS -> clause.negate();
+            default -> throw new IllegalArgumentException("Operator not supported for " + field + " field");
+        };
+    }
+
+    private static Predicate<LogEvent> compilePhrase(
+            ConditionOperator operator, String field, Function<LogEvent, String> accessor, String phrase) {
+        return compileMatch(operator, field, event -> containsIgnoreCase(accessor.apply(event), phrase));
+    }
+
+    private static Predicate<LogEvent> compileTimestamp(ConditionOperator operator, Instant instant) {
+        return switch (operator) {
+            case EQ -> event -> instant.equals(event.getTimestamp());
+            case GTE -> event -> event.getTimestamp() != null && !event.getTimestamp().isBefore(instant);
+            case GT -> event -> event.getTimestamp() != null && event.getTimestamp().isAfter(instant);
+            case LTE -> event -> event.getTimestamp() != null && !event.getTimestamp().isAfter(instant);
+            case LT -> event -> event.getTimestamp() != null && event.getTimestamp().isBefore(instant);
+            default -> throw new IllegalArgumentException("Operator not supported for timestamp field");
+        };
+    }
+
+    private static boolean containsIgnoreCase(String text, String phrase) {
+        if (text == null) {
+            return false;
+        }
+        int last = text.length() - phrase.length();
+        for (int i = 0; i <= last; i++) {
+            if (text.regionMatches(true, i, phrase, 0, phrase.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static String translateLevelCondition(ConditionOperator operator, String value) {
         String normalized = value.toUpperCase(Locale.ROOT);
         String clause = "level.keyword:\"" + escapePhrase(normalized) + "\"";
@@ -385,6 +493,15 @@ public class LogQueryParser {
         };
     }
 
+    private static String translateFieldCondition(String field, ConditionOperator operator, String value) {
+        String clause = field + ":\"" + escapePhrase(value) + "\"";
+        return switch (operator) {
+            case EQ, CONTAINS -> clause;
+            case NEQ, NOT_CONTAINS -> "NOT " + clause;
+            default -> throw new IllegalArgumentException("Operator not supported for " + field + " field");
+        };
+    }
+
     private static String translateTimestampCondition(ConditionOperator operator, String value) {
         Instant instant = parseTimestamp(value);
         String iso = instant.toString();
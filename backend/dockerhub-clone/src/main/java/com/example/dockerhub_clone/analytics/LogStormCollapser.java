@@ -0,0 +1,229 @@
+package com.example.dockerhub_clone.analytics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Collapses bursts of repeated events, such as the same WARN logged thousands of times while a dependency is
+ * down, into one summary document per window.
+ * <p>
+ * Events are fingerprinted by level, logger and message, with every run of digits treated alike so ids,
+ * durations and counters do not make otherwise identical messages distinct. The first event of a
+ * fingerprint opens a window of {@code window} (in event time) and is emitted as usual; repeats inside the
+ * window are only counted. When the window ends, a single copy of the first repeat is emitted with
+ * {@link LogEvent#getRepeatCount()} and the first and last timestamps of the repeats it stands for.
+ * <p>
+ * Fingerprints live in a fixed, direct-mapped table, so memory is bounded and nothing is allocated per
+ * event; two fingerprints competing for a slot simply close each other's window early. Because repeats are
+ * held back, callers must not checkpoint past {@link #watermark()}. A reader that sees no further events,
+ * such as a quiet file or an idle appender, releases summaries with {@link #expire(Instant, Consumer)} instead
+ * of {@link #flush(Consumer)}, so a storm spread over several reads still yields one summary per window.
+ * <p>
+ * Instances belong to a single reader and are not thread-safe.
+ */
+public class LogStormCollapser {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long windowMillis;
+    private final Set<String> levels;
+    private final int mask;
+    private final long[] fingerprints;
+    private final long[] windowStarts;
+    private final boolean[] occupied;
+    private final Group[] groups;
+    private final int[] pendingSlots;
+    private int pendingCount;
+    private long watermark = Long.MAX_VALUE;
+    private long nextExpiry = Long.MAX_VALUE;
+
+    /**
+     * @param maxGroups number of fingerprints tracked at once; rounded up to a power of two
+     */
+    public LogStormCollapser(Duration window, int maxGroups) {
+        this(window, maxGroups, null);
+    }
+
+    /**
+     * @param levels levels whose events are collapsed, in any case; {@code null} collapses every level. Other
+     *               events pass straight through.
+     */
+    public LogStormCollapser(Duration window, int maxGroups, Collection<String> levels) {
+        this.windowMillis = window.toMillis();
+        if (levels != null) {
+            this.levels = new HashSet<>();
+            levels.forEach(level -> this.levels.add(level.toUpperCase(Locale.ROOT)));
+        } else {
+            this.levels = null;
+        }
+        int slots = 1;
+        while (slots < Math.max(1, maxGroups)) {
+            slots <<= 1;
+        }
+        this.mask = slots - 1;
+        this.fingerprints = new long[slots];
+        this.windowStarts = new long[slots];
+        this.occupied = new boolean[slots];
+        this.groups = new Group[slots];
+        this.pendingSlots = new int[slots];
+    }
+
+    public void accept(LogEvent event, Consumer<LogEvent> sink) {
+        long now = event.getTimestamp().toEpochMilli();
+        if (now >= nextExpiry) {
+            expire(now, sink);
+        }
+        if (levels != null && (event.getLevel() == null
+                || !levels.contains(event.getLevel().toUpperCase(Locale.ROOT)))) {
+            sink.accept(event);
+            return;
+        }
+
+        long fingerprint = fingerprint(event);
+        int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+        if (occupied[slot] && fingerprints[slot] == fingerprint
+                && now >= windowStarts[slot] && now - windowStarts[slot] < windowMillis) {
+            repeat(slot, event);
+            return;
+        }
+
+        if (occupied[slot]) {
+            emit(slot, sink);
+        }
+        occupied[slot] = true;
+        fingerprints[slot] = fingerprint;
+        windowStarts[slot] = now;
+        sink.accept(event);
+    }
+
+    public boolean hasPending() {
+        return pendingCount > 0;
+    }
+
+    /**
+     * Offset of the oldest repeat held back, or {@link Long#MAX_VALUE} if there is none.
+     */
+    public long watermark() {
+        return watermark;
+    }
+
+    /**
+     * Emits the summaries of windows that ended before {@code now}, as if an event had arrived at that time.
+     */
+    public void expire(Instant now, Consumer<LogEvent> sink) {
+        long millis = now.toEpochMilli();
+        if (millis >= nextExpiry) {
+            expire(millis, sink);
+        }
+    }
+
+    /**
+     * Emits every pending summary and forgets all windows.
+     */
+    public void flush(Consumer<LogEvent> sink) {
+        while (pendingCount > 0) {
+            emit(pendingSlots[pendingCount - 1], sink);
+        }
+        Arrays.fill(occupied, false);
+    }
+
+    private void repeat(int slot, LogEvent event) {
+        Group group = groups[slot];
+        if (group == null) {
+            group = new Group();
+            groups[slot] = group;
+        }
+        if (group.count == 0) {
+            group.event.copyFrom(event);
+            group.first = event.getTimestamp();
+            pendingSlots[pendingCount++] = slot;
+            watermark = Math.min(watermark, event.getOffset());
+            nextExpiry = Math.min(nextExpiry, windowStarts[slot] + windowMillis);
+        }
+        group.count++;
+        group.last = event.getTimestamp();
+    }
+
+    /**
+     * Emits the summaries of windows that ended before {@code now}.
+     */
+    private void expire(long now, Consumer<LogEvent> sink) {
+        nextExpiry = Long.MAX_VALUE;
+        for (int i = pendingCount - 1; i >= 0; i--) {
+            int slot = pendingSlots[i];
+            long end = windowStarts[slot] + windowMillis;
+            if (now >= end) {
+                emit(slot, sink);
+                occupied[slot] = false;
+            } else {
+                nextExpiry = Math.min(nextExpiry, end);
+            }
+        }
+    }
+
+    private void emit(int slot, Consumer<LogEvent> sink) {
+        Group group = groups[slot];
+        if (group == null || group.count == 0) {
+            return;
+        }
+        LogEvent summary = group.event;
+        summary.setRepeatCount(group.count);
+        summary.setFirstTimestamp(group.first);
+        summary.setLastTimestamp(group.last);
+        summary.setTimestamp(group.first);
+        group.count = 0;
+        removePending(slot);
+        sink.accept(summary);
+    }
+
+    private void removePending(int slot) {
+        long oldest = Long.MAX_VALUE;
+        for (int i = 0; i < pendingCount; i++) {
+            if (pendingSlots[i] == slot) {
+                pendingSlots[i] = pendingSlots[--pendingCount];
+                i--;
+                continue;
+            }
+            oldest = Math.min(oldest, groups[pendingSlots[i]].event.getOffset());
+        }
+        watermark = oldest;
+    }
+
+    private static long fingerprint(LogEvent event) {
+        long hash = hash(FNV_OFFSET_BASIS, event.getLevel());
+        hash = hash(hash, event.getLogger());
+        return hash(hash, event.getMessage());
+    }
+
+    private static long hash(long hash, String value) {
+        hash = (hash ^ 0x1f) * FNV_PRIME;
+        if (value == null) {
+            return hash;
+        }
+        boolean inDigits = false;
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            boolean digit = ch >= '0' && ch <= '9';
+            if (digit && inDigits) {
+                continue;
+            }
+            inDigits = digit;
+            hash = (hash ^ (digit ? '0' : ch)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static final class Group {
+        private final LogEvent event = new LogEvent();
+        private int count;
+        private Instant first;
+        private Instant last;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.dockerhub_clone.analytics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free queue for many producers and a single consumer.
+ * <p>
+ * Every slot carries a sequence number telling whose turn it is: a producer claims the next position with
+ * one compare-and-set on the tail, stores its element and then publishes the slot by advancing its
+ * sequence; the consumer takes a slot once it sees it published and hands it back to the producers one lap
+ * later. Producers never wait for each other or for the consumer: when the buffer is full, {@link #offer}
+ * fails immediately and the caller decides what to drop.
+ * <p>
+ * {@link #poll()} must only ever be called from one thread at a time.
+ */
+public final class MpscRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * @param requestedCapacity rounded up to the next power of two
+     */
+    public MpscRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 1 || requestedCapacity > 1 << 30) {
+            throw new IllegalArgumentException("Ring buffer capacity must be between 1 and 2^30");
+        }
+        int size = 1;
+        while (size < requestedCapacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return {@code false} if the buffer is full
+     */
+    public boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                return false; // the consumer has not freed this slot yet
+            }
+            // another producer claimed the position first; retry with the new tail
+        }
+    }
+
+    /**
+     * @return the oldest published element, or {@code null} if there is none
+     */
+    public E poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = slots.get(index);
+        slots.lazySet(index, null);
+        sequences.set(index, position + capacity);
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * Approximate number of queued elements; exact only while no producer is active.
+     */
+    public int size() {
+        return (int) Math.max(0L, Math.min(capacity, tail.get() - head));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.dockerhub_clone.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AuditProperties.class)
+public class AuditConfiguration {
+}
@@ -0,0 +1,71 @@
+package com.example.dockerhub_clone.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "audit")
+public class AuditProperties {
+
+    /**
+     * Durability of actions without an entry in {@code durability}.
+     */
+    private Durability defaultDurability = Durability.TRANSACTIONAL;
+
+    /**
+     * Durability per action, keyed by the normalised action name such as {@code USER_LOGIN}. Frequent,
+     * low-value actions can be written behind; anything that must never be lost stays transactional.
+     */
+    private Map<String, Durability> durability = new HashMap<>(Map.of("USER_LOGIN", Durability.WRITE_BEHIND));
+
+    /**
+     * Number of write-behind audit logs that can wait to be written. When the queue is full, callers write
+     * their entry themselves instead of losing it.
+     */
+    private int writeBehindQueueSize = 10_000;
+
+    /**
+     * Maximum number of audit logs inserted in one write-behind transaction.
+     */
+    private int writeBehindBatchSize = 500;
+
+    /**
+     * Maximum time a write-behind audit log waits for its batch to fill up.
+     */
+    private Duration writeBehindFlushInterval = Duration.ofMillis(200);
+
+    /**
+     * How long audit logs are kept. On PostgreSQL whole monthly partitions are dropped, so a log is removed
+     * once its entire month is older than this. Zero keeps audit logs forever.
+     */
+    private Duration retention = Duration.ofDays(365);
+
+    /**
+     * Number of monthly {@code audit_logs} partitions created ahead of the current month.
+     */
+    private int partitionsAhead = 2;
+
+    /**
+     * How often partitions are created ahead and expired audit logs are purged.
+     */
+    private Duration partitionMaintenanceInterval = Duration.ofHours(6);
+
+    public Durability durabilityOf(String action) {
+        return action == null ? defaultDurability : durability.getOrDefault(action, defaultDurability);
+    }
+
+    public enum Durability {
+        /**
+         * Written in the caller's transaction, together with the audited change.
+         */
+        TRANSACTIONAL,
+        /**
+         * Queued and written in batches by a background thread; entries still queued when the process
+         * dies are lost.
+         */
+        WRITE_BEHIND
+    }
+}
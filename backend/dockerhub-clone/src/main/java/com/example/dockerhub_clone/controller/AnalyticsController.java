@@ -1,12 +1,15 @@
 package com.example.dockerhub_clone.controller;
 
 import com.example.dockerhub_clone.analytics.AnalyticsService;
+import com.example.dockerhub_clone.analytics.LogIngestionService;
+import com.example.dockerhub_clone.dto.IngestionStatusDto;
 import com.example.dockerhub_clone.dto.LogSearchRequest;
 import com.example.dockerhub_clone.dto.LogSearchResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -18,10 +21,17 @@ import org.springframework.web.bind.annotation.RestController;
 public class AnalyticsController {
 
     private final AnalyticsService analyticsService;
+    private final LogIngestionService logIngestionService;
 
     @PostMapping("/search")
     public LogSearchResponse search(@Valid @RequestBody LogSearchRequest request) {
         System.out.println("ENTEREEEEEED");
         return analyticsService.search(request);
     }
+
+    @GetMapping("/ingestion")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public IngestionStatusDto ingestionStatus() {
+        return logIngestionService.status();
+    }
 }
\ No newline at end of file
@@ -1,16 +1,21 @@
 package com.example.dockerhub_clone.controller;
 
+import com.example.dockerhub_clone.dto.AuditLogPageDto;
 import com.example.dockerhub_clone.dto.ProfileResponseDto;
 import com.example.dockerhub_clone.dto.UpdatePasswordRequestDto;
 import com.example.dockerhub_clone.dto.UpdateProfileRequestDto;
+import com.example.dockerhub_clone.service.AuditLogQueryService;
 import com.example.dockerhub_clone.service.ProfileService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Instant;
 import java.util.Map;
 
 @RestController
@@ -19,6 +24,7 @@ import java.util.Map;
 public class ProfileController {
 
     private final ProfileService profileService;
+    private final AuditLogQueryService auditLogQueryService;
 
     @GetMapping
     public ProfileResponseDto getProfile() {
@@ -35,4 +41,16 @@ public class ProfileController {
         profileService.updatePassword(request);
         return Map.of("message", "Password updated successfully");
     }
+
+    @GetMapping("/audit-logs")
+    public AuditLogPageDto getAuditLogs(
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) String targetType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return auditLogQueryService.searchOwn(action, targetType, from, to, cursor, limit);
+    }
 }
\ No newline at end of file
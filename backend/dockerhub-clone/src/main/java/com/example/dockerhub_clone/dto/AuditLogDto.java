@@ -0,0 +1,22 @@
+package com.example.dockerhub_clone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuditLogDto {
+    private Long id;
+    private String action;
+    private String targetType;
+    private String targetId;
+    private String metadata;
+    private String actorUsername;
+    private Instant createdAt;
+}
@@ -0,0 +1,20 @@
+package com.example.dockerhub_clone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuditLogPageDto {
+    private List<AuditLogDto> items;
+    /**
+     * Cursor for the next, older page, or {@code null} on the last page.
+     */
+    private String nextCursor;
+}
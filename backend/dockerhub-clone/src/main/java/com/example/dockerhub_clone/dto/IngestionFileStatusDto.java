@@ -0,0 +1,17 @@
+package com.example.dockerhub_clone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionFileStatusDto {
+    private String path;
+    private long size;
+    private long committedOffset;
+    private long lag;
+}
@@ -0,0 +1,31 @@
+package com.example.dockerhub_clone.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionStatusDto {
+    private boolean enabled;
+    private String lastRunStartedAt;
+    private long lastRunDurationMs;
+    private boolean lastRunBudgetExhausted;
+    private long linesRead;
+    private long bytesRead;
+    private long parseFailures;
+    private long droppedByRules;
+    private long bulkRequests;
+    private long bulkFailures;
+    private double bulkMeanLatencyMs;
+    private long retryableItemErrors;
+    private long rejectedItemErrors;
+    private long targetBatchBytes;
+    private boolean spoolBacklog;
+    private long totalLag;
+    private List<IngestionFileStatusDto> files;
+}
@@ -5,14 +5,22 @@ import lombok.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "audit_logs")
+// every index ends in (created_at desc, id desc), the keyset order of AuditLogQueryService
+@Table(name = "audit_logs", indexes = {
+        @Index(name = "idx_audit_logs_actor_created", columnList = "actor_user_id, created_at desc, id desc"),
+        @Index(name = "idx_audit_logs_action_created", columnList = "action, created_at desc, id desc"),
+        @Index(name = "idx_audit_logs_created", columnList = "created_at desc, id desc")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class AuditLog {
 
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled sequence: ids are handed out 50 at a time, which keeps JDBC insert batching possible
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_logs_seq")
+    @SequenceGenerator(name = "audit_logs_seq", sequenceName = "audit_logs_seq", allocationSize = 50)
     private Long id;
 
     private String action;        // e.g., "REPO_CREATE", "TAG_DELETE"
@@ -22,6 +30,7 @@ public class AuditLog {
     @Column(length = 4000)
     private String metadata;      // optional JSON/details
 
+    @Column(nullable = false)     // partition key on PostgreSQL, see AuditLogPartitionManager
     private Instant createdAt;
 
     @ManyToOne @JoinColumn(name = "actor_user_id")
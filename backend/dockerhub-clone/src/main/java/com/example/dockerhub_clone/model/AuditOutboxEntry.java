@@ -0,0 +1,40 @@
+package com.example.dockerhub_clone.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "audit_outbox", indexes = {
+        @Index(name = "idx_audit_outbox_unshipped", columnList = "shipped_at, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AuditOutboxEntry {
+
+    public static final int MAX_TEXT_LENGTH = 8000;
+
+    // pooled sequence: ids are handed out 50 at a time, which keeps JDBC insert batching possible
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_outbox_seq")
+    @SequenceGenerator(name = "audit_outbox_seq", sequenceName = "audit_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    private String documentId;    // Elasticsearch _id, e.g. "audit-42"; replays overwrite it
+
+    private Instant occurredAt;
+
+    private String level;
+
+    private String source;        // e.g., "audit-log"
+
+    @Column(length = MAX_TEXT_LENGTH)
+    private String message;
+
+    @Column(length = MAX_TEXT_LENGTH)
+    private String raw;
+
+    private Instant shippedAt;    // null until the relay got the document into Elasticsearch
+}
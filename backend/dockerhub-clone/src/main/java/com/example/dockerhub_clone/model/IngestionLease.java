@@ -0,0 +1,24 @@
+package com.example.dockerhub_clone.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "ingestion_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IngestionLease {
+
+    @Id
+    private String name;          // e.g., "log-ingestion"
+
+    private String owner;         // host:pid:nonce of the node holding the lease
+
+    private Instant expiresAt;    // the lease is free once this has passed
+
+    @Version
+    private Long version;         // null until inserted, so a new lease is persisted rather than merged
+}
@@ -3,11 +3,21 @@ package com.example.dockerhub_clone.repository;
 import com.example.dockerhub_clone.model.AuditLog;
 import com.example.dockerhub_clone.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
-public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
-    List<AuditLog> findByActorUser(User user);
+public interface AuditLogRepository extends JpaRepository<AuditLog, Long>, JpaSpecificationExecutor<AuditLog> {
     List<AuditLog> findTop5ByActorUserOrderByCreatedAtDesc(User user);
     Optional<AuditLog> findFirstByActorUserOrderByCreatedAtDesc(User user);
-}
\ No newline at end of file
+
+    @Transactional
+    @Modifying
+    @Query("delete from AuditLog a where a.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
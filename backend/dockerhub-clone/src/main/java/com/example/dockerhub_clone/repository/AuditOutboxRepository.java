@@ -0,0 +1,27 @@
+package com.example.dockerhub_clone.repository;
+
+import com.example.dockerhub_clone.model.AuditOutboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface AuditOutboxRepository extends JpaRepository<AuditOutboxEntry, Long> {
+
+    List<AuditOutboxEntry> findByShippedAtIsNullAndIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update AuditOutboxEntry e set e.shippedAt = :shippedAt where e.id in :ids")
+    int markShipped(@Param("ids") Collection<Long> ids, @Param("shippedAt") Instant shippedAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from AuditOutboxEntry e where e.shippedAt < :before")
+    int deleteShippedBefore(@Param("before") Instant before);
+}
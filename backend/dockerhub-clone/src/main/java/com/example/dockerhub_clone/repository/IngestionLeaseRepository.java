@@ -0,0 +1,29 @@
+package com.example.dockerhub_clone.repository;
+
+import com.example.dockerhub_clone.model.IngestionLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+
+public interface IngestionLeaseRepository extends JpaRepository<IngestionLease, String> {
+
+    /**
+     * Takes or extends the lease if {@code owner} already holds it or it has expired.
+     *
+     * @return 1 if {@code owner} holds the lease afterwards, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("update IngestionLease l set l.owner = :owner, l.expiresAt = :expiresAt, l.version = l.version + 1 "
+            + "where l.name = :name and (l.owner = :owner or l.expiresAt < :now)")
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner,
+                   @Param("now") Instant now, @Param("expiresAt") Instant expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("update IngestionLease l set l.expiresAt = :now, l.version = l.version + 1 where l.name = :name and l.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("now") Instant now);
+}
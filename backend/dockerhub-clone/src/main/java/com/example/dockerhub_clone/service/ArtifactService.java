@@ -11,6 +11,7 @@ import com.example.dockerhub_clone.repository.DockerRepositoryRepository;
 import com.example.dockerhub_clone.repository.CollaboratorRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.LinkedHashMap;
@@ -27,6 +28,7 @@ public class ArtifactService {
     private final AuthService authService;
     private final AuditLogService auditLogService;
 
+    @Transactional
     public ArtifactResponseDto createArtifact(Long repoId, ArtifactRequestDto request) {
         DockerRepository repo = repoRepository.findById(repoId)
                 .orElseThrow(() -> new RuntimeException("Repository not found"));
@@ -0,0 +1,241 @@
+package com.example.dockerhub_clone.service;
+
+import com.example.dockerhub_clone.config.AuditProperties;
+import com.example.dockerhub_clone.repository.AuditLogRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps {@code audit_logs} partitioned by month and purges audit logs older than
+ * {@link AuditProperties#getRetention()}.
+ * <p>
+ * On PostgreSQL the table Hibernate creates is converted on startup into one partitioned by range on
+ * {@code created_at}: a partition per UTC month ({@code audit_logs_pYYYYMM}) plus a default partition for rows
+ * outside them. Every {@link AuditProperties#getPartitionMaintenanceInterval()} partitions are created
+ * {@link AuditProperties#getPartitionsAhead()} months in advance, and months that lie entirely before the
+ * retention cutoff are dropped as whole tables instead of being deleted row by row. The indexes declared on
+ * {@code AuditLog} live on the parent, so every partition gets them, and newest-first queries only ever read
+ * the months that are kept.
+ * <p>
+ * Other databases (H2 in local development) have no declarative partitioning; there the table stays as it is
+ * and expired rows are removed with a bulk delete.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class AuditLogPartitionManager {
+
+    static final String TABLE = "audit_logs";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern PARTITION_NAME = Pattern.compile(TABLE + "_p(\\d{4})(\\d{2})");
+
+    private final AuditProperties auditProperties;
+    private final AuditLogRepository auditLogRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private ScheduledExecutorService maintenanceExecutor;
+    private volatile boolean partitioned;
+
+    @PostConstruct
+    void start() {
+        partitioned = isPostgres() && ensurePartitioned();
+        // partitions for the coming months must exist before the first audit log is written
+        maintainSafely();
+
+        maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audit-log-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = auditProperties.getPartitionMaintenanceInterval().toMillis();
+        maintenanceExecutor.scheduleWithFixedDelay(this::maintainSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (maintenanceExecutor != null) {
+            maintenanceExecutor.shutdownNow();
+        }
+    }
+
+    private void maintainSafely() {
+        try {
+            maintain(Instant.now());
+        } catch (DataAccessException exception) {
+            log.warn("Failed to maintain audit log partitions: {}", exception.getMessage());
+        } catch (RuntimeException exception) {
+            log.error("Unexpected failure while maintaining audit log partitions", exception);
+        }
+    }
+
+    void maintain(Instant now) {
+        YearMonth currentMonth = YearMonth.from(now.atZone(ZoneOffset.UTC));
+        if (partitioned) {
+            createPartitions(currentMonth, currentMonth.plusMonths(Math.max(0, auditProperties.getPartitionsAhead())));
+        }
+
+        Duration retention = auditProperties.getRetention();
+        if (retention == null || retention.isZero() || retention.isNegative()) {
+            return;
+        }
+        Instant cutoff = now.minus(retention);
+        if (partitioned) {
+            dropPartitionsBefore(YearMonth.from(cutoff.atZone(ZoneOffset.UTC)));
+            jdbcTemplate.update("delete from " + DEFAULT_PARTITION + " where created_at < ?",
+                    cutoff.atOffset(ZoneOffset.UTC));
+        } else {
+            int deleted = auditLogRepository.deleteCreatedBefore(cutoff);
+            if (deleted > 0) {
+                log.info("Deleted {} audit logs older than {}", deleted, cutoff);
+            }
+        }
+    }
+
+    private boolean isPostgres() {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+
+    /**
+     * Converts a plain {@code audit_logs} table into a partitioned one, moving any existing rows over.
+     *
+     * @return whether the table is partitioned afterwards
+     */
+    private boolean ensurePartitioned() {
+        try {
+            Boolean converted = transactionTemplate.execute(status -> {
+                String kind = tableKind(TABLE);
+                if (kind == null) {
+                    log.warn("Table {} does not exist; audit logs are not partitioned", TABLE);
+                    return false;
+                }
+                if ("p".equals(kind)) {
+                    return true;
+                }
+                jdbcTemplate.execute("lock table " + TABLE + " in access exclusive mode");
+                if ("p".equals(tableKind(TABLE))) {
+                    return true; // another node converted it while we waited for the lock
+                }
+                convert();
+                return true;
+            });
+            return Boolean.TRUE.equals(converted);
+        } catch (DataAccessException exception) {
+            log.error("Failed to partition {}; expired audit logs are deleted row by row instead", TABLE, exception);
+            return false;
+        }
+    }
+
+    private void convert() {
+        String old = TABLE + "_unpartitioned";
+        jdbcTemplate.execute("alter table " + TABLE + " rename to " + old);
+        List<Map<String, Object>> foreignKeys = jdbcTemplate.queryForList(
+                "select conname, pg_get_constraintdef(oid) as definition from pg_constraint"
+                        + " where conrelid = to_regclass(?) and contype = 'f'", old);
+        // the plain indexes Hibernate created, as "USING btree (...)", to be recreated on the partitioned table
+        List<Map<String, Object>> indexes = jdbcTemplate.queryForList(
+                "select c.relname as name, substring(pg_get_indexdef(i.indexrelid) from ' USING .*$') as definition"
+                        + " from pg_index i join pg_class c on c.oid = i.indexrelid"
+                        + " where i.indrelid = to_regclass(?) and not i.indisunique", old);
+        jdbcTemplate.execute("create table " + TABLE + " (like " + old + " including defaults including constraints)"
+                + " partition by range (created_at)");
+
+        Timestamp oldest = jdbcTemplate.queryForObject("select min(created_at) from " + old, Timestamp.class);
+        YearMonth currentMonth = YearMonth.now(ZoneOffset.UTC);
+        YearMonth firstMonth = oldest == null ? currentMonth : YearMonth.from(oldest.toInstant().atZone(ZoneOffset.UTC));
+        createPartitions(firstMonth.isBefore(currentMonth) ? firstMonth : currentMonth, currentMonth);
+        jdbcTemplate.execute("create table if not exists " + DEFAULT_PARTITION + " partition of " + TABLE + " default");
+        int moved = jdbcTemplate.update("insert into " + TABLE + " select * from " + old);
+        jdbcTemplate.execute("drop table " + old);
+
+        // unique constraints of a partitioned table must include the partition key
+        jdbcTemplate.execute("alter table " + TABLE + " add constraint " + TABLE + "_pkey primary key (id, created_at)");
+        for (Map<String, Object> foreignKey : foreignKeys) {
+            jdbcTemplate.execute("alter table " + TABLE + " add constraint " + foreignKey.get("conname")
+                    + " " + foreignKey.get("definition"));
+        }
+        for (Map<String, Object> index : indexes) {
+            jdbcTemplate.execute("create index " + index.get("name") + " on " + TABLE + index.get("definition"));
+        }
+        log.info("Partitioned {} by month; moved {} existing audit logs", TABLE, moved);
+    }
+
+    private String tableKind(String table) {
+        List<String> kinds = jdbcTemplate.queryForList(
+                "select relkind::text from pg_class where oid = to_regclass(?)", String.class, table);
+        return kinds.isEmpty() ? null : kinds.get(0);
+    }
+
+    private void createPartitions(YearMonth from, YearMonth to) {
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            jdbcTemplate.execute(createPartitionSql(month));
+        }
+    }
+
+    private void dropPartitionsBefore(YearMonth cutoffMonth) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid"
+                        + " where i.inhparent = to_regclass(?)", String.class, TABLE);
+        for (String partition : expiredPartitions(partitions, cutoffMonth)) {
+            jdbcTemplate.execute("drop table if exists " + partition);
+            log.info("Dropped expired audit log partition {}", partition);
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return TABLE + "_p" + MONTH_SUFFIX.format(month);
+    }
+
+    static String createPartitionSql(YearMonth month) {
+        return "create table if not exists " + partitionName(month) + " partition of " + TABLE
+                + " for values from ('" + month.atDay(1) + " 00:00:00+00')"
+                + " to ('" + month.plusMonths(1).atDay(1) + " 00:00:00+00')";
+    }
+
+    /**
+     * Monthly partitions that end on or before the start of {@code cutoffMonth}. The default partition and
+     * tables that do not follow the naming scheme are never returned.
+     */
+    static List<String> expiredPartitions(Collection<String> partitions, YearMonth cutoffMonth) {
+        List<String> expired = new ArrayList<>();
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (month.isBefore(cutoffMonth)) {
+                expired.add(partition);
+            }
+        }
+        return expired;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.dockerhub_clone.service;
+
+import com.example.dockerhub_clone.dto.AuditLogDto;
+import com.example.dockerhub_clone.dto.AuditLogPageDto;
+import com.example.dockerhub_clone.model.AuditLog;
+import com.example.dockerhub_clone.model.User;
+import com.example.dockerhub_clone.repository.AuditLogRepository;
+import com.example.dockerhub_clone.repository.UserRepository;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Pages through audit logs newest first.
+ * <p>
+ * Pages are keyset-paginated on {@code (createdAt, id)}: the cursor holds the last row of the previous page and
+ * the next page starts right after it, so every page is an index range scan of {@code limit} rows no matter how
+ * deep it is, and rows written meanwhile neither shift nor repeat pages. The indexes on {@code audit_logs} all
+ * end in {@code (created_at desc, id desc)}.
+ */
+@Service
+@RequiredArgsConstructor
+public class AuditLogQueryService {
+
+    static final int DEFAULT_LIMIT = 50;
+    static final int MAX_LIMIT = 200;
+    private static final Sort KEYSET_ORDER = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    private final AuditLogRepository auditLogRepository;
+    private final UserRepository userRepository;
+    private final AuthService authService;
+
+    /**
+     * Audit logs of all users, or of the user named {@code actor}.
+     */
+    @Transactional(readOnly = true)
+    public AuditLogPageDto search(String actor, String action, String targetType, Instant from, Instant to,
+                                  String cursor, Integer limit) {
+        User actorUser = null;
+        if (StringUtils.hasText(actor)) {
+            actorUser = userRepository.findByUsername(actor.trim())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        }
+        return query(actorUser, action, targetType, from, to, cursor, limit);
+    }
+
+    /**
+     * Audit logs of the current user.
+     */
+    @Transactional(readOnly = true)
+    public AuditLogPageDto searchOwn(String action, String targetType, Instant from, Instant to,
+                                     String cursor, Integer limit) {
+        return query(authService.getCurrentUser(), action, targetType, from, to, cursor, limit);
+    }
+
+    private AuditLogPageDto query(User actor, String action, String targetType, Instant from, Instant to,
+                                  String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_LIMIT : Math.min(MAX_LIMIT, Math.max(1, limit));
+        Specification<AuditLog> specification = filter(actor, AuditLogService.normalize(action),
+                AuditLogService.normalize(targetType), from, to, decodeCursor(cursor));
+
+        // one extra row tells whether there is a next page
+        List<AuditLog> rows = auditLogRepository.findBy(specification,
+                query -> query.sortBy(KEYSET_ORDER).limit(pageSize + 1).all());
+
+        boolean hasMore = rows.size() > pageSize;
+        List<AuditLog> page = hasMore ? rows.subList(0, pageSize) : rows;
+        return AuditLogPageDto.builder()
+                .items(page.stream().map(this::toDto).collect(Collectors.toList()))
+                .nextCursor(hasMore ? encodeCursor(page.get(page.size() - 1)) : null)
+                .build();
+    }
+
+    private static Specification<AuditLog> filter(User actor, String action, String targetType, Instant from,
+                                                  Instant to, Cursor after) {
+        return (root, query, builder) -> {
+            if (query.getResultType() != Long.class) {
+                root.fetch("actorUser", JoinType.LEFT);
+            }
+            List<Predicate> predicates = new ArrayList<>();
+            if (actor != null) {
+                predicates.add(builder.equal(root.get("actorUser"), actor));
+            }
+            if (action != null) {
+                predicates.add(builder.equal(root.get("action"), action));
+            }
+            if (targetType != null) {
+                predicates.add(builder.equal(root.get("targetType"), targetType));
+            }
+            if (from != null) {
+                predicates.add(builder.greaterThanOrEqualTo(root.get("createdAt"), from));
+            }
+            if (to != null) {
+                predicates.add(builder.lessThan(root.get("createdAt"), to));
+            }
+            if (after != null) {
+                // (createdAt, id) < (after.createdAt, after.id)
+                predicates.add(builder.or(
+                        builder.lessThan(root.get("createdAt"), after.createdAt()),
+                        builder.and(
+                                builder.equal(root.get("createdAt"), after.createdAt()),
+                                builder.lessThan(root.get("id"), after.id()))));
+            }
+            return builder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private AuditLogDto toDto(AuditLog auditLog) {
+        return AuditLogDto.builder()
+                .id(auditLog.getId())
+                .action(auditLog.getAction())
+                .targetType(auditLog.getTargetType())
+                .targetId(auditLog.getTargetId())
+                .metadata(auditLog.getMetadata())
+                .actorUsername(auditLog.getActorUser() != null ? auditLog.getActorUser().getUsername() : null)
+                .createdAt(auditLog.getCreatedAt())
+                .build();
+    }
+
+    static String encodeCursor(AuditLog last) {
+        String value = last.getCreatedAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decodeCursor(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('|');
+            return new Cursor(Instant.parse(value.substring(0, separator)), Long.parseLong(value.substring(separator + 1)));
+        } catch (RuntimeException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    record Cursor(Instant createdAt, long id) {
+    }
+}
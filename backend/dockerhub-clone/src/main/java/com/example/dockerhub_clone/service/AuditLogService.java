@@ -1,22 +1,16 @@
 package com.example.dockerhub_clone.service;
 
+import com.example.dockerhub_clone.config.AuditProperties;
 import com.example.dockerhub_clone.model.AuditLog;
 import com.example.dockerhub_clone.model.User;
-import com.example.dockerhub_clone.repository.AuditLogRepository;
-import com.example.dockerhub_clone.analytics.ElasticsearchProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.Instant;
-import java.util.HashMap;
 import java.util.Map;
 
 @Service
@@ -24,16 +18,20 @@ import java.util.Map;
 @Slf4j
 public class AuditLogService {
 
-    private final AuditLogRepository auditLogRepository;
     private final ObjectMapper objectMapper;
-    private final RestTemplate elasticsearchRestTemplate;
-    private final ElasticsearchProperties elasticsearchProperties;
+    private final AuditLogWriter auditLogWriter;
+    private final AuditProperties auditProperties;
 
-    public AuditLog recordAction(User actor, String action, String targetType, String targetId) {
-        return recordAction(actor, action, targetType, targetId, null);
+    public void recordAction(User actor, String action, String targetType, String targetId) {
+        recordAction(actor, action, targetType, targetId, null);
     }
 
-    public AuditLog recordAction(User actor, String action, String targetType, String targetId, Map<String, ?> metadata) {
+    /**
+     * Saves the audit log and its outbox entry with the durability configured for the action. Transactional
+     * entries are committed or rolled back together with the audited change; write-behind entries may still be
+     * queued when this returns. {@code AuditOutboxRelay} ships the outbox entry to Elasticsearch.
+     */
+    public void recordAction(User actor, String action, String targetType, String targetId, Map<String, ?> metadata) {
         AuditLog auditLog = AuditLog.builder()
                 .actorUser(actor)
                 .action(normalize(action))
@@ -43,43 +41,14 @@ public class AuditLogService {
                 .createdAt(Instant.now())
                 .build();
 
-        AuditLog saved = auditLogRepository.save(auditLog);
-
-        // Also ship to Elasticsearch
-        shipToElasticsearch(saved);
-
-        return saved;
-    }
-
-    private void shipToElasticsearch(AuditLog log) {
-        if (!elasticsearchProperties.isEnabled()) {
-            return;
-        }
-
-        try {
-            Map<String, Object> json = new HashMap<>();
-            json.put("timestamp", log.getCreatedAt().toString());
-            json.put("level", "INFO"); // or ERROR/WARN if applicable
-            json.put("message", log.getAction() + " on " + log.getTargetType());
-            json.put("raw", log.toString());
-            json.put("source", "audit-log");
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            HttpEntity<String> entity = new HttpEntity<>(objectMapper.writeValueAsString(json), headers);
-            elasticsearchRestTemplate.postForEntity(
-                    "/" + elasticsearchProperties.getIndex() + "/_doc",
-                    entity,
-                    String.class
-            );
-
-        } catch (Exception e) {
-            System.out.println("ERRORRRR");
+        if (auditProperties.durabilityOf(auditLog.getAction()) == AuditProperties.Durability.WRITE_BEHIND) {
+            auditLogWriter.writeBehind(auditLog);
+        } else {
+            auditLogWriter.write(auditLog);
         }
     }
 
-    private String normalize(String value) {
+    static String normalize(String value) {
         if (!StringUtils.hasText(value)) {
             return null;
         }
@@ -0,0 +1,234 @@
+package com.example.dockerhub_clone.service;
+
+import com.example.dockerhub_clone.analytics.ElasticsearchProperties;
+import com.example.dockerhub_clone.config.AuditProperties;
+import com.example.dockerhub_clone.model.AuditLog;
+import com.example.dockerhub_clone.model.AuditOutboxEntry;
+import com.example.dockerhub_clone.repository.AuditLogRepository;
+import com.example.dockerhub_clone.repository.AuditOutboxRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists audit logs together with their Elasticsearch outbox entries.
+ * <p>
+ * {@link #write(AuditLog)} inserts in the caller's transaction. {@link #writeBehind(AuditLog)} only queues
+ * the entry; a background thread inserts queued entries in batches of up to
+ * {@link AuditProperties#getWriteBehindBatchSize()} per transaction. Ids come from pooled sequences, so
+ * Hibernate can send each batch as JDBC batch inserts instead of one round trip per row.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditLogWriter {
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 5_000L;
+
+    private final AuditProperties auditProperties;
+    private final ElasticsearchProperties elasticsearchProperties;
+    private final AuditLogRepository auditLogRepository;
+    private final AuditOutboxRepository auditOutboxRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private BlockingQueue<AuditLog> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, auditProperties.getWriteBehindQueueSize()));
+        running = true;
+        writerThread = new Thread(this::writeLoop, "audit-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @Transactional
+    public AuditLog write(AuditLog auditLog) {
+        return persist(List.of(auditLog)).get(0);
+    }
+
+    /**
+     * Queues the audit log for a background batch insert. If the queue is full, or the writer has stopped,
+     * the entry is written synchronously instead.
+     */
+    public void writeBehind(AuditLog auditLog) {
+        if (!running || !queue.offer(auditLog)) {
+            transactionTemplate.executeWithoutResult(status -> persist(List.of(auditLog)));
+        }
+    }
+
+    private List<AuditLog> persist(List<AuditLog> auditLogs) {
+        List<AuditLog> saved = auditLogRepository.saveAll(auditLogs);
+        if (elasticsearchProperties.isEnabled()) {
+            List<AuditOutboxEntry> entries = new ArrayList<>(saved.size());
+            saved.forEach(auditLog -> entries.add(toOutboxEntry(auditLog)));
+            auditOutboxRepository.saveAll(entries);
+        }
+        return saved;
+    }
+
+    /**
+     * Waits for a first entry, then for the batch to fill up or the flush interval to pass. Entries that could
+     * not be written because the database is unavailable stay in the batch and are retried with a growing
+     * delay; meanwhile the queue fills up and callers fall back to writing synchronously. After {@link #stop()}
+     * it writes what is left and exits; polls time out after the flush interval, so the writer notices within
+     * one interval.
+     */
+    private void writeLoop() {
+        int batchSize = Math.max(1, auditProperties.getWriteBehindBatchSize());
+        long flushNanos = auditProperties.getWriteBehindFlushInterval().toNanos();
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        int failures = 0;
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                fill(batch, batchSize, flushNanos);
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                flush(batch);
+                if (batch.isEmpty()) {
+                    failures = 0;
+                } else if (!running) {
+                    log.error("Could not write {} audit logs before shutdown; they are lost", batch.size());
+                    batch.clear();
+                } else {
+                    failures++;
+                    Thread.sleep(retryDelayMillis(failures));
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                flush(batch);
+                return;
+            } catch (RuntimeException exception) {
+                // never let the thread die: a dead writer would leave entries queued that nobody writes
+                log.error("Unexpected failure in the audit log writer", exception);
+            }
+        }
+    }
+
+    private void fill(List<AuditLog> batch, int batchSize, long flushNanos) throws InterruptedException {
+        if (batch.isEmpty()) {
+            AuditLog first = queue.poll(flushNanos, TimeUnit.NANOSECONDS);
+            if (first == null) {
+                return;
+            }
+            batch.add(first);
+        }
+        long deadline = System.nanoTime() + flushNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            AuditLog next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Writes the batch in one transaction and removes what was written from it. If the batch fails for any
+     * other reason than an unavailable database, its entries are written one by one so that a single bad row
+     * only costs itself; rows that still cannot be written are dropped. What is left in the batch afterwards
+     * should be retried.
+     */
+    private void flush(List<AuditLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> persist(batch));
+            batch.clear();
+            return;
+        } catch (RuntimeException exception) {
+            resetIds(batch);
+            if (isRetryable(exception)) {
+                log.warn("Could not write {} audit logs; retrying: {}", batch.size(), exception.getMessage());
+                return;
+            }
+            log.warn("Failed to write a batch of {} audit logs; writing them one by one", batch.size(), exception);
+        }
+
+        Iterator<AuditLog> iterator = batch.iterator();
+        while (iterator.hasNext()) {
+            AuditLog auditLog = iterator.next();
+            try {
+                transactionTemplate.executeWithoutResult(status -> persist(List.of(auditLog)));
+                iterator.remove();
+            } catch (RuntimeException exception) {
+                auditLog.setId(null);
+                if (isRetryable(exception)) {
+                    return;
+                }
+                log.error("Dropping audit log that cannot be written: {}", auditLog, exception);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Failures of the connection or the transaction itself rather than of the rows being written.
+     */
+    private static boolean isRetryable(RuntimeException exception) {
+        return exception instanceof TransactionException
+                || exception instanceof TransientDataAccessException
+                || exception instanceof RecoverableDataAccessException
+                || exception instanceof DataAccessResourceFailureException;
+    }
+
+    /**
+     * Ids handed out in a rolled back transaction were never written; a retry must insert the entries again
+     * instead of merging them.
+     */
+    private static void resetIds(List<AuditLog> auditLogs) {
+        auditLogs.forEach(auditLog -> auditLog.setId(null));
+    }
+
+    private long retryDelayMillis(int failures) {
+        long base = Math.max(1L, auditProperties.getWriteBehindFlushInterval().toMillis());
+        return Math.min(MAX_RETRY_DELAY_MILLIS, base << Math.min(failures, 10));
+    }
+
+    private AuditOutboxEntry toOutboxEntry(AuditLog auditLog) {
+        return AuditOutboxEntry.builder()
+                .documentId("audit-" + auditLog.getId())
+                .occurredAt(auditLog.getCreatedAt())
+                .level("INFO") // or ERROR/WARN if applicable
+                .source("audit-log")
+                .message(truncate(auditLog.getAction() + " on " + auditLog.getTargetType()))
+                .raw(truncate(auditLog.toString()))
+                .build();
+    }
+
+    private String truncate(String value) {
+        return value.length() <= AuditOutboxEntry.MAX_TEXT_LENGTH
+                ? value
+                : value.substring(0, AuditOutboxEntry.MAX_TEXT_LENGTH);
+    }
+}
@@ -1,21 +1,139 @@
 package com.example.dockerhub_clone.service;
 
+import com.example.dockerhub_clone.dto.AuthenticatedUserDto;
+import com.example.dockerhub_clone.dto.ChangePasswordRequestDto;
+import com.example.dockerhub_clone.dto.LoginResponseDto;
+import com.example.dockerhub_clone.model.Role;
+import com.example.dockerhub_clone.model.RoleName;
 import com.example.dockerhub_clone.model.User;
+import com.example.dockerhub_clone.model.UserRole;
+import com.example.dockerhub_clone.repository.RoleRepository;
 import com.example.dockerhub_clone.repository.UserRepository;
+import com.example.dockerhub_clone.repository.UserRoleRepository;
+import com.example.dockerhub_clone.security.JwtUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class AuthService {
 
     private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final UserRoleRepository userRoleRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final JwtUtil jwtUtil;
+    private final AuditLogService auditLogService;
 
     public User getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         return userRepository.findByUsername(auth.getName())
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
+
+    @Transactional
+    public void register(String username, String email, String password) {
+        User user = User.builder()
+                .username(username)
+                .displayName(username)
+                .email(email)
+                .passwordHash(passwordEncoder.encode(password))
+                .active(true)
+                .createdAt(Instant.now())
+                .updatedAt(Instant.now())
+                .build();
+
+        userRepository.save(user);
+
+        Role userRole = roleRepository.findByName(RoleName.ROLE_USER)
+                .orElseThrow(() -> new RuntimeException("Default role not found"));
+
+        userRoleRepository.save(UserRole.builder()
+                .user(user)
+                .role(userRole)
+                .build());
+
+        auditLogService.recordAction(user, "USER_REGISTER", "USER", user.getId().toString(), Map.of(
+                "email", user.getEmail(),
+                "username", user.getUsername()
+        ));
+    }
+
+    @Transactional
+    public LoginResponseDto login(String username, String password) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("Invalid credentials"));
+
+        if (!passwordEncoder.matches(password, user.getPasswordHash())) {
+            throw new RuntimeException("Invalid credentials");
+        }
+        if (!user.isActive()) {
+            throw new RuntimeException("Account is deactivated");
+        }
+
+        user.setUpdatedAt(Instant.now());
+        userRepository.save(user);
+
+        String token = jwtUtil.generateToken(username);
+
+        LoginResponseDto response = LoginResponseDto.builder()
+                .token(token)
+                .user(toAuthenticatedUserDto(user))
+                .isPasswordChangeRequired(user.isPasswordChangeRequired())
+                .build();
+
+        auditLogService.recordAction(user, "USER_LOGIN", "USER", user.getId().toString(), Map.of(
+                "loginAt", user.getUpdatedAt().toString()
+        ));
+        return response;
+    }
+
+    @Transactional
+    public void changePassword(ChangePasswordRequestDto request) {
+        User user = userRepository.findByUsername(request.getUsername())
+                .orElseThrow(() -> new RuntimeException("Invalid credentials"));
+
+        if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPasswordHash())) {
+            throw new RuntimeException("Invalid credentials");
+        }
+
+        user.setPasswordHash(passwordEncoder.encode(request.getNewPassword()));
+        user.setPasswordChangeRequired(false);
+        user.setUpdatedAt(Instant.now());
+        userRepository.save(user);
+
+        auditLogService.recordAction(user, "USER_PASSWORD_CHANGE", "USER", user.getId().toString(), Map.of(
+                "username", user.getUsername(),
+                "changedAt", user.getUpdatedAt().toString()
+        ));
+    }
+
+    public AuthenticatedUserDto toAuthenticatedUserDto(User user) {
+        return AuthenticatedUserDto.builder()
+                .username(user.getUsername())
+                .displayName(user.getDisplayName())
+                .roles(user.getRoles().stream()
+                        .map(UserRole::getRole)
+                        .map(Role::getName)
+                        .map(this::mapRoleName)
+                        .collect(Collectors.toCollection(LinkedHashSet::new)))
+                .build();
+    }
+
+    private String mapRoleName(RoleName roleName) {
+        return switch (roleName) {
+            case ROLE_ADMIN -> "ADMIN";
+            case ROLE_SUPER_ADMIN -> "SUPER_ADMIN";
+            case ROLE_USER -> "USER";
+        };
+    }
 }
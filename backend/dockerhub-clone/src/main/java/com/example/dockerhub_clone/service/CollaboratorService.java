@@ -8,6 +8,7 @@ import com.example.dockerhub_clone.repository.DockerRepositoryRepository;
 import com.example.dockerhub_clone.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -23,6 +24,7 @@ public class CollaboratorService {
     private final AuthService authService;
     private final AuditLogService auditLogService;
 
+    @Transactional
     public void addCollaborator(Long repoId, AddCollaboratorRequestDto request) {
         User currentUser = authService.getCurrentUser();
         DockerRepository repo = repoRepository.findById(repoId)
@@ -53,6 +55,7 @@ public class CollaboratorService {
         collaboratorRepository.save(collaborator);
     }
 
+    @Transactional
     public void removeCollaborator(Long repoId, String username) {
         User currentUser = authService.getCurrentUser();
         DockerRepository repo = repoRepository.findById(repoId)
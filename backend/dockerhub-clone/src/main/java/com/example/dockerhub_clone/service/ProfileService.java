@@ -19,6 +19,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -49,6 +50,7 @@ public class ProfileService {
         return buildProfileResponse(user);
     }
 
+    @Transactional
     public ProfileResponseDto updateProfile(UpdateProfileRequestDto request) {
         User user = authService.getCurrentUser();
 
@@ -92,6 +94,7 @@ public class ProfileService {
         return buildProfileResponse(user);
     }
 
+    @Transactional
     public void updatePassword(UpdatePasswordRequestDto request) {
         User user = authService.getCurrentUser();
 
@@ -30,6 +30,7 @@ public class RepositoryService {
     /**
      * Owner creates a new repository.
      */
+    @Transactional
     public RepositoryResponseDto createRepo(CreateRepositoryRequestDto request) {
         User currentUser = authService.getCurrentUser();
 
@@ -72,6 +73,7 @@ public class RepositoryService {
     /**
      * Owner or collaborator with WRITE/ADMIN can edit repository.
      */
+    @Transactional
     public RepositoryResponseDto editRepo(Long repoId, CreateRepositoryRequestDto request) {
         DockerRepository repo = findRepo(repoId);
         User currentUser = authService.getCurrentUser();
@@ -106,6 +108,7 @@ public class RepositoryService {
     /**
      * Owner or collaborator with ADMIN can delete repository.
      */
+    @Transactional
     public void deleteRepo(Long repoId) {
         DockerRepository repo = findRepo(repoId);
         User currentUser = authService.getCurrentUser();
@@ -141,6 +144,7 @@ public class RepositoryService {
     /**
      * Owner can mark repo as official (global admin via Role handled separately).
      */
+    @Transactional
     public RepositoryResponseDto markAsOfficial(Long repoId) {
         DockerRepository repo = findRepo(repoId);
         repo.setOfficial(true);
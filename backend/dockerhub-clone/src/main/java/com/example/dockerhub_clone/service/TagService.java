@@ -13,6 +13,7 @@ import com.example.dockerhub_clone.repository.DockerRepositoryRepository;
 import com.example.dockerhub_clone.repository.CollaboratorRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.LinkedHashMap;
@@ -32,6 +33,7 @@ public class TagService {
 
     // --- Core functionality ---
 
+    @Transactional
     public TagResponseDto createTag(Long repoId, TagRequestDto request) {
         DockerRepository repo = findRepo(repoId);
         User current = authService.getCurrentUser();
@@ -67,6 +69,7 @@ public class TagService {
         return mapToDto(saved);
     }
 
+    @Transactional
     public void deleteTag(Long repoId, String tagName) {
         DockerRepository repo = findRepo(repoId);
         User current = authService.getCurrentUser();
@@ -88,6 +91,7 @@ public class TagService {
         tagRepository.delete(tag);
     }
 
+    @Transactional
     public TagResponseDto retag(Long repoId, String oldTagName, String newTagName) {
         DockerRepository repo = findRepo(repoId);
         User current = authService.getCurrentUser();
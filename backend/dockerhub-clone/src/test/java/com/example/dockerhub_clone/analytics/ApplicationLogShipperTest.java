@@ -0,0 +1,158 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ApplicationLogShipperTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BulkShipper bulkShipper = mock(BulkShipper.class);
+    private final List<JsonNode> shipped = new CopyOnWriteArrayList<>();
+    private LogIngestionProperties ingestionProperties;
+    private ElasticsearchProperties elasticsearchProperties;
+    private BulkDispatcher dispatcher;
+    private ApplicationLogShipper shipper;
+
+    @BeforeEach
+    void setUp() {
+        ingestionProperties = new LogIngestionProperties();
+        ingestionProperties.setEnabled(true);
+        ingestionProperties.setAppenderEnabled(true);
+        ingestionProperties.setAppenderFlushInterval(Duration.ofMillis(20));
+        elasticsearchProperties = new ElasticsearchProperties();
+        elasticsearchProperties.setEnabled(true);
+        elasticsearchProperties.setSpoolEnabled(false);
+
+        when(bulkShipper.targetBatchBytes()).thenReturn(Long.MAX_VALUE);
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            BulkPayloadWriter payload = invocation.getArgument(0);
+            payload.forEachItem((bytes, offset, length) -> {
+                String[] lines = new String(bytes, offset, length, StandardCharsets.UTF_8).split("\n");
+                try {
+                    shipped.add(objectMapper.readTree(lines[1]));
+                } catch (Exception exception) {
+                    throw new IllegalStateException(exception);
+                }
+            });
+            return true;
+        });
+        EventSpool eventSpool = new EventSpool(elasticsearchProperties, bulkShipper, objectMapper);
+        dispatcher = new BulkDispatcher(ingestionProperties, elasticsearchProperties, bulkShipper, eventSpool, objectMapper);
+        dispatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (shipper != null) {
+            shipper.stop();
+        }
+        dispatcher.stop();
+    }
+
+    @Test
+    @DisplayName("the appender should ship application events with their fields and skip excluded loggers")
+    void appender_shipsApplicationEvents() throws InterruptedException {
+        IngestRuleSet ingestRuleSet = new IngestRuleSet(ingestionProperties, new LogQueryParser());
+        ingestRuleSet.compile();
+        start(ingestRuleSet);
+        Logger application = LoggerFactory.getLogger("com.example.dockerhub_clone.service.RepositoryService");
+        Logger analytics = LoggerFactory.getLogger(BulkShipper.class);
+
+        MDC.put("requestId", "req-42");
+        try {
+            application.warn("Repository {} not found", "demo", new IllegalStateException("boom"));
+        } finally {
+            MDC.remove("requestId");
+        }
+        analytics.warn("Failed to ship documents");
+        application.info("second");
+
+        awaitShipped(2);
+
+        assertThat(shipped).extracting(node -> node.path("message").asText())
+                .containsExactly("Repository demo not found", "second");
+        JsonNode first = shipped.get(0);
+        assertThat(first.path("level").asText()).isEqualTo("WARN");
+        assertThat(first.path("logger").asText()).isEqualTo("com.example.dockerhub_clone.service.RepositoryService");
+        assertThat(first.path("thread").asText()).isEqualTo(Thread.currentThread().getName());
+        assertThat(first.path("request_id").asText()).isEqualTo("req-42");
+        assertThat(first.path("pid").asText()).isEqualTo(Long.toString(ProcessHandle.current().pid()));
+        assertThat(first.path("stack_trace").asText()).contains("IllegalStateException: boom");
+        assertThat(first.path("source").asText()).isEqualTo("application");
+    }
+
+    @Test
+    @DisplayName("the drain thread should survive a failing event and keep shipping")
+    void drain_survivesFailingEvent() throws InterruptedException {
+        IngestRuleSet ingestRuleSet = mock(IngestRuleSet.class);
+        when(ingestRuleSet.accept(any())).thenAnswer(invocation -> {
+            if ("poison".equals(invocation.<LogEvent>getArgument(0).getMessage())) {
+                throw new IllegalStateException("rule failed");
+            }
+            return true;
+        });
+        start(ingestRuleSet);
+        Logger application = LoggerFactory.getLogger("com.example.dockerhub_clone.service.RepositoryService");
+
+        application.info("poison");
+        application.info("after");
+        awaitShipped(1);
+
+        assertThat(shipped).extracting(node -> node.path("message").asText()).containsExactly("after");
+    }
+
+    @Test
+    @DisplayName("the drain thread should collapse a storm into its first event and one summary per window")
+    void drain_collapsesStorms() throws InterruptedException {
+        ingestionProperties.setCollapseWindow(Duration.ofSeconds(1));
+        IngestRuleSet ingestRuleSet = new IngestRuleSet(ingestionProperties, new LogQueryParser());
+        ingestRuleSet.compile();
+        start(ingestRuleSet);
+        Logger application = LoggerFactory.getLogger("com.example.dockerhub_clone.service.RepositoryService");
+
+        for (int i = 0; i < 50; i++) {
+            application.warn("Registry unreachable, attempt {}", i);
+            application.info("Polling {}", i);
+        }
+        awaitShipped(52);
+
+        assertThat(shipped).filteredOn(node -> node.path("level").asText().equals("WARN"))
+                .extracting(node -> node.path("message").asText(), node -> node.path("repeat_count").asInt())
+                .containsExactly(
+                        tuple("Registry unreachable, attempt 0", 0),
+                        tuple("Registry unreachable, attempt 1", 49));
+        assertThat(shipped).filteredOn(node -> node.path("level").asText().equals("INFO")).hasSize(50);
+    }
+
+    private void start(IngestRuleSet ingestRuleSet) {
+        shipper = new ApplicationLogShipper(
+                ingestionProperties, elasticsearchProperties, bulkShipper, dispatcher, ingestRuleSet);
+        shipper.start();
+    }
+
+    private void awaitShipped(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (shipped.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+    }
+}
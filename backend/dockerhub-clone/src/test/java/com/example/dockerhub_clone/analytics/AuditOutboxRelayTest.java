@@ -0,0 +1,107 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.example.dockerhub_clone.model.AuditOutboxEntry;
+import com.example.dockerhub_clone.repository.AuditOutboxRepository;
+import com.example.dockerhub_clone.repository.IngestionLeaseRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuditOutboxRelayTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AuditOutboxRepository repository = mock(AuditOutboxRepository.class);
+    private final BulkShipper bulkShipper = mock(BulkShipper.class);
+    private final List<List<String>> batches = new ArrayList<>();
+    private final List<List<Long>> marked = new ArrayList<>();
+    private AuditOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        ElasticsearchProperties elasticsearchProperties = new ElasticsearchProperties();
+        elasticsearchProperties.setEnabled(true);
+        elasticsearchProperties.setOutboxBatchSize(2);
+        LogIngestionProperties ingestionProperties = new LogIngestionProperties();
+
+        when(bulkShipper.targetBatchBytes()).thenReturn(Long.MAX_VALUE);
+        when(repository.findByShippedAtIsNullAndIdGreaterThanOrderByIdAsc(eq(0L), any()))
+                .thenReturn(List.of(entry(1L, "REPO_CREATE"), entry(2L, "TAG_CREATE")));
+        when(repository.findByShippedAtIsNullAndIdGreaterThanOrderByIdAsc(eq(2L), any()))
+                .thenReturn(List.of(entry(3L, "TAG_DELETE")));
+        when(repository.markShipped(anyCollection(), any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            marked.add(List.copyOf(ids));
+            return ids.size();
+        });
+        relay = new AuditOutboxRelay(elasticsearchProperties, repository, bulkShipper,
+                new IngestionLeaderElection(ingestionProperties, mock(IngestionLeaseRepository.class), event -> { }),
+                objectMapper);
+    }
+
+    @Test
+    @DisplayName("relay should ship unshipped rows in id order, one bulk request per page, and mark them shipped")
+    void relay_shipsPagesInIdOrder() {
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            record(invocation.getArgument(0));
+            return true;
+        });
+
+        assertThat(relay.relay()).isEqualTo(3);
+
+        assertThat(batches).containsExactly(List.of("REPO_CREATE", "TAG_CREATE"), List.of("TAG_DELETE"));
+        assertThat(marked).containsExactly(List.of(1L, 2L), List.of(3L));
+    }
+
+    @Test
+    @DisplayName("relay should leave rows unshipped when Elasticsearch does not accept them")
+    void relay_keepsRowsOnFailure() {
+        when(bulkShipper.ship(any())).thenReturn(false);
+
+        assertThat(relay.relay()).isZero();
+
+        verify(repository, never()).markShipped(anyCollection(), any());
+    }
+
+    private static AuditOutboxEntry entry(long id, String action) {
+        return AuditOutboxEntry.builder()
+                .id(id)
+                .documentId("audit-" + id)
+                .occurredAt(Instant.parse("2024-05-01T10:00:00Z"))
+                .level("INFO")
+                .source("audit-log")
+                .message(action)
+                .raw(action)
+                .build();
+    }
+
+    private void record(BulkPayloadWriter payload) {
+        List<String> messages = new ArrayList<>();
+        payload.forEachItem((bytes, offset, length) -> {
+            String[] lines = new String(bytes, offset, length, StandardCharsets.UTF_8).split("\n");
+            try {
+                assertThat(lines[0]).contains("audit-");
+                messages.add(objectMapper.readTree(lines[1]).path("message").asText());
+            } catch (Exception exception) {
+                throw new IllegalStateException(exception);
+            }
+        });
+        batches.add(messages);
+        payload.reset();
+    }
+}
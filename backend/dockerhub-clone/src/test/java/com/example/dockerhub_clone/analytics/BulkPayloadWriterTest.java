@@ -0,0 +1,85 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkPayloadWriterTest {
+
+    private static final String HEAD = "31:00000000000000aa";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("writeTo should emit one action and one document line per event, optionally gzipped")
+    void writeTo_streamsNdjson() throws IOException {
+        BulkPayloadWriter writer = new BulkPayloadWriter(objectMapper.getFactory(), "application-logs");
+        writer.add(event("first \"quoted\""));
+        writer.add(event("second"));
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        writer.writeTo(compressed, true);
+        String body = new String(
+                new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8);
+
+        String[] lines = body.split("\n");
+        assertThat(body).endsWith("\n");
+        assertThat(lines).hasSize(4);
+        assertThat(objectMapper.readTree(lines[0]).path("index").path("_index").asText()).isEqualTo("application-logs");
+        JsonNode document = objectMapper.readTree(lines[1]);
+        assertThat(document.path("message").asText()).isEqualTo("first \"quoted\"");
+        assertThat(document.path("level").asText()).isEqualTo("INFO");
+        assertThat(writer.size()).isEqualTo(2);
+        assertThat(writer.byteSize()).isEqualTo(body.getBytes(StandardCharsets.UTF_8).length);
+
+        writer.reset();
+        writer.add(event("third"));
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        writer.writeTo(plain, false);
+        assertThat(plain.toString(StandardCharsets.UTF_8).split("\n")).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("add should put the event id into the action line so replays overwrite instead of duplicating")
+    void add_writesDocumentId() throws IOException {
+        BulkPayloadWriter writer = new BulkPayloadWriter(objectMapper.getFactory(), "application-logs");
+        LogEvent event = event("with id");
+        event.setId(LogIngestionService.documentIdPrefix("/var/log/app.log", "(dev=803,ino=42)", HEAD) + 1024);
+        writer.add(event);
+        writer.add(event("without id"));
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writer.writeTo(body, false);
+        String[] lines = body.toString(StandardCharsets.UTF_8).split("\n");
+
+        assertThat(objectMapper.readTree(lines[0]).path("index").path("_id").asText()).isEqualTo(event.getId());
+        assertThat(objectMapper.readTree(lines[2]).path("index").has("_id")).isFalse();
+        assertThat(LogIngestionService.documentIdPrefix("/var/log/app.log", "(dev=803,ino=42)", HEAD))
+                .isEqualTo(LogIngestionService.documentIdPrefix("/var/log/app.log", "(dev=803,ino=42)", HEAD))
+                .isNotEqualTo(LogIngestionService.documentIdPrefix("/var/log/app.log", "(dev=803,ino=43)", HEAD))
+                // the same inode reused by a new file at the same path
+                .isNotEqualTo(LogIngestionService.documentIdPrefix("/var/log/app.log", "(dev=803,ino=42)",
+                        "31:00000000000000bb"));
+    }
+
+    private LogEvent event(String message) {
+        LogEvent event = new LogEvent();
+        event.setTimestamp(Instant.parse("2025-03-14T08:00:00Z"));
+        event.setLevel("INFO");
+        event.setMessage(message);
+        event.setRaw(message);
+        event.setSource("app.log");
+        return event;
+    }
+}
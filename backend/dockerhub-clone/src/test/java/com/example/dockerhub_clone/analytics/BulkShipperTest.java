@@ -0,0 +1,111 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class BulkShipperTest {
+
+    private static final String BULK_URL = "http://es:9200/_bulk?refresh=false";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MockRestServiceServer server;
+    private BulkShipper shipper;
+    private LogIngestionProperties ingestionProperties;
+    private IngestionMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.setUriTemplateHandler(new DefaultUriBuilderFactory("http://es:9200"));
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+
+        ElasticsearchProperties elasticsearchProperties = new ElasticsearchProperties();
+        elasticsearchProperties.setCompressRequests(false);
+        ingestionProperties = new LogIngestionProperties();
+        ingestionProperties.setBulkRetryBackoff(Duration.ofMillis(1));
+        ingestionProperties.setBulkMaxRetries(2);
+
+        metrics = new IngestionMetrics(new SimpleMeterRegistry());
+        shipper = new BulkShipper(restTemplate, elasticsearchProperties, ingestionProperties, objectMapper, metrics);
+        shipper.init();
+    }
+
+    @Test
+    @DisplayName("ship should resend only items rejected with a retryable status and drop permanent rejections")
+    void ship_retriesOnlyRetryableItems() {
+        BulkPayloadWriter payload = payload("accepted", "throttled", "unmappable");
+
+        server.expect(requestTo(BULK_URL))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess("""
+                        {"took":3,"errors":true,"items":[
+                          {"index":{"_index":"application-logs","status":201}},
+                          {"index":{"_index":"application-logs","status":429,
+                                    "error":{"type":"es_rejected_execution_exception","reason":"queue full"}}},
+                          {"index":{"_index":"application-logs","status":400,
+                                    "error":{"type":"mapper_parsing_exception","reason":"bad"}}}
+                        ]}""", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(BULK_URL))
+                .andExpect(content().string(allOf(
+                        containsString("throttled"), not(containsString("accepted")), not(containsString("unmappable")))))
+                .andRespond(withSuccess("{\"took\":1,\"errors\":false,\"items\":[]}", MediaType.APPLICATION_JSON));
+
+        assertThat(shipper.ship(payload)).isTrue();
+        assertThat(payload.isEmpty()).isTrue();
+        assertThat(metrics.bulkSucceeded().count()).isEqualTo(2);
+        assertThat(metrics.retryableItemErrors()).isEqualTo(1);
+        assertThat(metrics.rejectedItemErrors()).isEqualTo(1);
+        server.verify();
+    }
+
+    @Test
+    @DisplayName("ship should report failure after exhausting retries and shrink the target batch size")
+    void ship_givesUpAfterRetries() {
+        BulkPayloadWriter payload = payload("one", "two");
+        long initialTarget = shipper.targetBatchBytes();
+
+        for (int i = 0; i <= ingestionProperties.getBulkMaxRetries(); i++) {
+            server.expect(requestTo(BULK_URL)).andRespond(withServerError());
+        }
+
+        assertThat(shipper.ship(payload)).isFalse();
+        assertThat(payload.size()).isEqualTo(2);
+        assertThat(shipper.targetBatchBytes()).isLessThan(initialTarget);
+        assertThat(metrics.bulkFailed().count()).isEqualTo(ingestionProperties.getBulkMaxRetries() + 1);
+        server.verify();
+    }
+
+    private BulkPayloadWriter payload(String... messages) {
+        BulkPayloadWriter payload = new BulkPayloadWriter(objectMapper.getFactory(), "application-logs");
+        for (String message : messages) {
+            LogEvent event = new LogEvent();
+            event.setTimestamp(Instant.parse("2025-03-14T08:00:00Z"));
+            event.setMessage(message);
+            event.setRaw(message);
+            event.setSource("app.log");
+            payload.add(event);
+        }
+        return payload;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EventSpoolTest {
+
+    private static final int CAPACITY = 64 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BulkShipper bulkShipper = mock(BulkShipper.class);
+    private final List<String> shipped = new ArrayList<>();
+    private ElasticsearchProperties properties;
+    private EventSpool spool;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ElasticsearchProperties();
+        properties.setEnabled(true);
+        properties.setSpoolFile(tempDir.resolve("spool").toString());
+        properties.setSpoolMaxBytes(CAPACITY);
+        when(bulkShipper.targetBatchBytes()).thenReturn(4096L);
+        spool = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        spool.close();
+    }
+
+    @Test
+    @DisplayName("drain should replay spooled events in order and survive a restart")
+    void drain_replaysInOrderAcrossRestarts() {
+        assertThat(spool.append(payload("one", "two"))).isTrue();
+        assertThat(spool.append(event("three"))).isTrue();
+        spool.close();
+
+        spool = open();
+        assertThat(spool.hasBacklog()).isTrue();
+        shipWith(true);
+        spool.drain();
+
+        assertThat(shipped).containsExactly("one", "two", "three");
+        assertThat(spool.hasBacklog()).isFalse();
+    }
+
+    @Test
+    @DisplayName("drain should keep events that could not be shipped")
+    void drain_keepsEventsWhenShippingFails() {
+        spool.append(event("kept"));
+        shipWith(false);
+        spool.drain();
+        assertThat(spool.hasBacklog()).isTrue();
+
+        shipped.clear();
+        shipWith(true);
+        spool.drain();
+        assertThat(shipped).containsExactly("kept");
+    }
+
+    @Test
+    @DisplayName("append should refuse events once the segment is full and wrap around after a partial drain")
+    void append_isBoundedAndWrapsAround() {
+        String message = "x".repeat(1000);
+        int spooled = 0;
+        while (spool.append(event(message + spooled))) {
+            spooled++;
+        }
+        assertThat(spooled).isBetween(20, 40);
+
+        // only the first two batches get through, freeing the front of the segment
+        int[] batches = {0};
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            if (batches[0]++ >= 2) {
+                return false;
+            }
+            record(invocation.getArgument(0));
+            return true;
+        });
+        spool.drain();
+        int replayed = shipped.size();
+        assertThat(replayed).isPositive();
+        assertThat(spool.append(event("after wrap"))).isTrue();
+
+        shipped.clear();
+        shipWith(true);
+        spool.drain();
+        assertThat(shipped).hasSize(spooled - replayed + 1);
+        assertThat(shipped.get(shipped.size() - 1)).isEqualTo("after wrap");
+        assertThat(spool.hasBacklog()).isFalse();
+    }
+
+    @Test
+    @DisplayName("the scheduled drain should run on the spool's own thread and not hold up appends and syncs")
+    void drain_runsOnItsOwnThread() throws InterruptedException {
+        spool.close();
+        properties.setSpoolDrainInterval(Duration.ofMillis(50));
+        properties.setSpoolSyncInterval(Duration.ofMillis(50));
+        spool = open();
+        spool.append(event("blocked"));
+        AtomicReference<String> drainThread = new AtomicReference<>();
+        CountDownLatch shipping = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            drainThread.set(Thread.currentThread().getName());
+            shipping.countDown();
+            release.await();
+            return true;
+        });
+
+        assertThat(shipping.await(5, TimeUnit.SECONDS)).isTrue();
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            assertThat(spool.append(event("during drain"))).isTrue();
+            spool.sync();
+        });
+        release.countDown();
+
+        assertThat(drainThread.get()).isEqualTo("event-spool-drain");
+    }
+
+    @Test
+    @DisplayName("open should leave spooling off until a spool file is configured")
+    void open_withoutSpoolFile() {
+        properties.setSpoolFile(null);
+        EventSpool unconfigured = open();
+
+        assertThat(unconfigured.isAvailable()).isFalse();
+        assertThat(unconfigured.append(event("dropped"))).isFalse();
+        unconfigured.close();
+    }
+
+    private EventSpool open() {
+        EventSpool opened = new EventSpool(properties, bulkShipper, objectMapper);
+        opened.open();
+        return opened;
+    }
+
+    private void shipWith(boolean result) {
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            if (result) {
+                record(invocation.getArgument(0));
+            }
+            return result;
+        });
+    }
+
+    private void record(BulkPayloadWriter payload) {
+        payload.forEachItem((bytes, offset, length) -> {
+            String[] lines = new String(bytes, offset, length, StandardCharsets.UTF_8).split("\n");
+            try {
+                shipped.add(objectMapper.readTree(lines[1]).path("message").asText());
+            } catch (Exception exception) {
+                throw new IllegalStateException(exception);
+            }
+        });
+    }
+
+    private BulkPayloadWriter payload(String... messages) {
+        BulkPayloadWriter payload = new BulkPayloadWriter(objectMapper.getFactory(), "application-logs");
+        for (String message : messages) {
+            payload.add(event(message));
+        }
+        return payload;
+    }
+
+    private LogEvent event(String message) {
+        LogEvent event = new LogEvent();
+        event.setTimestamp(Instant.parse("2025-03-14T08:00:00Z"));
+        event.setMessage(message);
+        event.setRaw(message);
+        event.setSource("app.log");
+        return event;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.dockerhub_clone.analytics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IngestRuleSetTest {
+
+    private final LogIngestionProperties properties = new LogIngestionProperties();
+    private final IngestRuleSet rules = new IngestRuleSet(properties, new LogQueryParser());
+
+    @Test
+    @DisplayName("accept should evaluate compiled queries like their Elasticsearch translation")
+    void accept_evaluatesCompiledQueries() {
+        properties.setIngestRules(List.of(
+                rule("level = debug AND message CONTAINS heartbeat", 0.0),
+                rule("NOT (logger = com.example.Audit OR timestamp >= 2025-03-14T09:00:00Z)", 0.0)));
+        rules.compile();
+
+        assertThat(rules.accept(event("DEBUG", "com.example.Audit", "Sent HEARTBEAT to peer", "08:00:00Z"))).isFalse();
+        assertThat(rules.accept(event("INFO", "com.example.Audit", "Sent heartbeat to peer", "08:00:00Z"))).isTrue();
+        assertThat(rules.accept(event("INFO", "com.example.Other", "Started", "08:00:00Z"))).isFalse();
+        assertThat(rules.accept(event("INFO", "com.example.Other", "Started", "09:30:00Z"))).isTrue();
+        assertThat(rules.droppedCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("accept should match negated conditions on events without the field, like Elasticsearch NOT")
+    void accept_negatedConditionsMatchMissingFields() {
+        properties.setIngestRules(List.of(rule("logger != com.example.Audit", 0.0)));
+        rules.compile();
+
+        assertThat(rules.accept(event("INFO", "com.example.Audit", "Saved", "08:00:00Z"))).isTrue();
+        assertThat(rules.accept(event("INFO", "com.example.Other", "Saved", "08:00:00Z"))).isFalse();
+        assertThat(rules.accept(event("INFO", null, "Saved", "08:00:00Z"))).isFalse();
+
+        properties.setIngestRules(List.of(rule("logger = com.example.Audit", 0.0)));
+        rules.compile();
+        assertThat(rules.accept(event("INFO", null, "Saved", "08:00:00Z"))).isTrue();
+    }
+
+    @Test
+    @DisplayName("accept should keep the configured share of matching events, the same ones on every pass")
+    void accept_samplesDeterministically() {
+        properties.setIngestRules(List.of(rule("level = DEBUG", 0.1)));
+        rules.compile();
+
+        int kept = 0;
+        for (long offset = 0; offset < 100_000; offset += 80) {
+            LogEvent event = event("DEBUG", null, "tick", "08:00:00Z");
+            event.setOffset(offset);
+            boolean first = rules.accept(event);
+            assertThat(rules.accept(event)).isEqualTo(first);
+            kept += first ? 1 : 0;
+        }
+        assertThat(kept).isBetween(95, 155);
+    }
+
+    @Test
+    @DisplayName("compile should reject rules whose query does not parse")
+    void compile_rejectsInvalidQueries() {
+        properties.setIngestRules(List.of(rule("level = ", 0.0)));
+
+        assertThatThrownBy(rules::compile)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("level = ");
+    }
+
+    private static LogIngestionProperties.IngestRule rule(String query, double sampleRate) {
+        LogIngestionProperties.IngestRule rule = new LogIngestionProperties.IngestRule();
+        rule.setQuery(query);
+        rule.setSampleRate(sampleRate);
+        return rule;
+    }
+
+    private static LogEvent event(String level, String logger, String message, String time) {
+        LogEvent event = new LogEvent();
+        event.setTimestamp(Instant.parse("2025-03-14T" + time));
+        event.setLevel(level);
+        event.setLogger(logger);
+        event.setMessage(message);
+        event.setRaw(message);
+        return event;
+    }
+}
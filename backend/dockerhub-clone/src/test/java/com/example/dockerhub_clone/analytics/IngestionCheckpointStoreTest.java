@@ -0,0 +1,154 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngestionCheckpointStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private LogIngestionProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LogIngestionProperties();
+        properties.setCheckpointFile(tempDir.resolve("state/.checkpoints.json").toString());
+    }
+
+    @Test
+    @DisplayName("flush should persist committed checkpoints that a new store loads again")
+    void commit_roundTrips() {
+        IngestionCheckpointStore store = open();
+        Path log = tempDir.resolve("application.log");
+        store.commit(log, "(dev=1,ino=2)", 120L, "40:0123456789abcdef");
+        assertThat(open().find(log)).isEmpty();
+
+        store.flush();
+        IngestionCheckpointStore reloaded = open();
+
+        assertThat(reloaded.find(log)).hasValueSatisfying(checkpoint -> {
+            assertThat(checkpoint.fileKey()).isEqualTo("(dev=1,ino=2)");
+            assertThat(checkpoint.offset()).isEqualTo(120L);
+            assertThat(checkpoint.head()).isEqualTo("40:0123456789abcdef");
+        });
+        assertThat(Files.exists(tempDir.resolve("state/.checkpoints.json.tmp"))).isFalse();
+        assertThat(reloaded.isStoreFile(tempDir.resolve("state/.checkpoints.json.tmp"))).isTrue();
+        assertThat(reloaded.isStoreFile(log)).isFalse();
+    }
+
+    @Test
+    @DisplayName("findByFileKey should follow a file across renames to its most recent checkpoint")
+    void findByFileKey_returnsLatest() throws InterruptedException {
+        IngestionCheckpointStore store = open();
+        store.commit(tempDir.resolve("application.log"), "inode-7", 100L);
+        Thread.sleep(5);
+        store.commit(tempDir.resolve("application.log.1"), "inode-7", 250L);
+        store.commit(tempDir.resolve("other.log"), "inode-8", 10L);
+
+        assertThat(store.findByFileKey("inode-7", null)).hasValueSatisfying(checkpoint -> {
+            assertThat(checkpoint.path()).isEqualTo(tempDir.resolve("application.log.1").toString());
+            assertThat(checkpoint.offset()).isEqualTo(250L);
+        });
+        assertThat(store.findByFileKey(null, null)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("findByFileKey should not hand the checkpoint of a deleted file to a new file reusing its inode")
+    void findByFileKey_rejectsReusedInode() {
+        IngestionCheckpointStore store = open();
+        store.commit(tempDir.resolve("application.log"), "inode-7", 100L, "12:00000000000000aa");
+
+        assertThat(store.findByFileKey("inode-7", "12:00000000000000aa")).isPresent();
+        assertThat(store.findByFileKey("inode-7", "12:00000000000000bb")).isEmpty();
+        assertThat(store.findByFileKey("inode-7", null)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("prune should drop old checkpoints of deleted files only")
+    void prune_dropsMissingFiles() throws IOException {
+        IngestionCheckpointStore store = open();
+        Path existing = Files.writeString(tempDir.resolve("application.log"), "line\n");
+        Path deleted = tempDir.resolve("application.log.1");
+        store.commit(existing, "inode-1", 5L);
+        store.commit(deleted, "inode-2", 5L);
+
+        store.prune(Duration.ofHours(1));
+        assertThat(store.find(deleted)).isPresent();
+
+        // a negative retention makes every checkpoint old enough
+        store.prune(Duration.ofHours(-1));
+        store.flush();
+        assertThat(store.find(deleted)).isEmpty();
+        assertThat(store.find(existing)).isPresent();
+        assertThat(open().find(deleted)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("a store should reload on gaining leadership and stop writing once another node leads")
+    void leadership_reloadsAndFencesTheStore() {
+        properties.setEnabled(true);
+        properties.setLeaderElectionEnabled(true);
+        Path log = tempDir.resolve("application.log");
+        IngestionCheckpointStore first = elected();
+        IngestionCheckpointStore second = elected();
+        first.onLeadershipChanged(new IngestionLeaderElection.LeadershipChanged(true));
+
+        second.commit(log, "inode-1", 999L);
+        second.flush();
+        first.commit(log, "inode-1", 100L);
+        first.flush();
+        assertThat(second.find(log)).isEmpty();
+
+        first.onLeadershipChanged(new IngestionLeaderElection.LeadershipChanged(false));
+        second.onLeadershipChanged(new IngestionLeaderElection.LeadershipChanged(true));
+        first.commit(log, "inode-1", 50L);
+        first.flush();
+
+        assertThat(first.isWritable()).isFalse();
+        assertThat(first.find(log)).isEmpty();
+        assertThat(second.find(log)).hasValueSatisfying(checkpoint -> assertThat(checkpoint.offset()).isEqualTo(100L));
+        assertThat(open().find(log)).hasValueSatisfying(checkpoint -> assertThat(checkpoint.offset()).isEqualTo(100L));
+    }
+
+    @Test
+    @DisplayName("headOf should fingerprint the first complete line only")
+    void headOf_firstLine() throws IOException {
+        String first = IngestionCheckpointStore.headOf(stream("first line\nsecond\n"));
+
+        assertThat(first).isEqualTo(IngestionCheckpointStore.headOf(stream("first line\nother\n")));
+        assertThat(first).isNotEqualTo(IngestionCheckpointStore.headOf(stream("first lime\nsecond\n")));
+        assertThat(IngestionCheckpointStore.headOf(stream("incomplete"))).isNull();
+        assertThat(IngestionCheckpointStore.headOf(stream("x".repeat(IngestionCheckpointStore.HEAD_BYTES + 10))))
+                .startsWith(IngestionCheckpointStore.HEAD_BYTES + ":");
+    }
+
+    private IngestionCheckpointStore open() {
+        IngestionCheckpointStore store = new IngestionCheckpointStore(properties, objectMapper);
+        store.load();
+        return store;
+    }
+
+    private IngestionCheckpointStore elected() {
+        IngestionCheckpointStore store = new IngestionCheckpointStore(properties, objectMapper);
+        store.start();
+        return store;
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
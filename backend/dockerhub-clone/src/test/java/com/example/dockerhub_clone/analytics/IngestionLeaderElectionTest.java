@@ -0,0 +1,103 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.example.dockerhub_clone.model.IngestionLease;
+import com.example.dockerhub_clone.repository.IngestionLeaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IngestionLeaderElectionTest {
+
+    private final IngestionLeaseRepository repository = mock(IngestionLeaseRepository.class);
+    private final List<Object> events = new ArrayList<>();
+    private LogIngestionProperties ingestionProperties;
+    private IngestionLeaderElection election;
+
+    @BeforeEach
+    void setUp() {
+        ingestionProperties = new LogIngestionProperties();
+        ingestionProperties.setEnabled(true);
+        ingestionProperties.setLeaderElectionEnabled(true);
+        ingestionProperties.setLeaseDuration(Duration.ofSeconds(30));
+        ingestionProperties.setLeaseRenewInterval(Duration.ofSeconds(10));
+        election = new IngestionLeaderElection(ingestionProperties, repository, events::add);
+    }
+
+    @Test
+    @DisplayName("renew should create the lease row if missing and lose leadership once another node holds it")
+    void renew_acquiresAndLosesLease() {
+        when(repository.tryAcquire(anyString(), anyString(), any(), any())).thenReturn(0);
+        when(repository.existsById(IngestionLeaderElection.LEASE_NAME)).thenReturn(false);
+        assertThat(election.isLeader()).isFalse();
+
+        election.renew();
+
+        assertThat(election.isLeader()).isTrue();
+        verify(repository).saveAndFlush(any(IngestionLease.class));
+
+        when(repository.existsById(IngestionLeaderElection.LEASE_NAME)).thenReturn(true);
+        election.renew();
+
+        assertThat(election.isLeader()).isFalse();
+        assertThat(events).containsExactly(
+                new IngestionLeaderElection.LeadershipChanged(true),
+                new IngestionLeaderElection.LeadershipChanged(false));
+    }
+
+    @Test
+    @DisplayName("renew should stay follower when another node creates the lease row first")
+    void renew_losesInsertRace() {
+        when(repository.tryAcquire(anyString(), anyString(), any(), any())).thenReturn(0);
+        when(repository.saveAndFlush(any(IngestionLease.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        election.renew();
+
+        assertThat(election.isLeader()).isFalse();
+    }
+
+    @Test
+    @DisplayName("a leader should keep leading through a failed renewal until its local deadline")
+    void renew_survivesDatabaseHiccup() {
+        when(repository.tryAcquire(eq(IngestionLeaderElection.LEASE_NAME), eq(election.owner()), any(), any()))
+                .thenReturn(1)
+                .thenThrow(new QueryTimeoutException("timeout"));
+
+        election.renew();
+        election.renew();
+
+        assertThat(election.isLeader()).isTrue();
+    }
+
+    @Test
+    @DisplayName("start should compete for the lease even with file ingestion disabled, for the audit relay")
+    void start_electsWithIngestionDisabled() throws InterruptedException {
+        ingestionProperties.setEnabled(false);
+        when(repository.tryAcquire(anyString(), anyString(), any(), any())).thenReturn(1);
+
+        election.start();
+        try {
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (!election.isLeader() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(election.isLeader()).isTrue();
+        } finally {
+            election.stop();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.dockerhub_clone.analytics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngestionMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final IngestionMetrics metrics = new IngestionMetrics(registry);
+
+    @Test
+    @DisplayName("counters and timers should be published under analytics.ingestion")
+    void counters_arePublished() {
+        metrics.linesRead(10, 400L);
+        metrics.linesRead(5, 100L);
+        metrics.parseError();
+        metrics.unparsedLinesFrom(() -> 3L);
+        metrics.bulkRequest(TimeUnit.MILLISECONDS.toNanos(20), true);
+        metrics.bulkRequest(TimeUnit.MILLISECONDS.toNanos(40), false);
+        metrics.itemErrors(2, 1);
+        metrics.itemErrors(0, 0);
+
+        assertThat(registry.get("analytics.ingestion.lines").counter().count()).isEqualTo(15.0);
+        assertThat(registry.get("analytics.ingestion.bytes").counter().count()).isEqualTo(500.0);
+        assertThat(registry.get("analytics.ingestion.parse.failures").functionCounter().count()).isEqualTo(4.0);
+        assertThat(registry.get("analytics.ingestion.bulk.latency").tag("outcome", "success").timer().count())
+                .isEqualTo(1L);
+        assertThat(registry.get("analytics.ingestion.bulk.latency").tag("outcome", "failure").timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isEqualTo(40.0);
+        assertThat(registry.get("analytics.ingestion.bulk.item.errors").tag("retryable", "true").counter().count())
+                .isEqualTo(2.0);
+        assertThat(registry.get("analytics.ingestion.bulk.item.errors").tag("retryable", "false").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("updateLag should publish a gauge per file and drop files no longer reported")
+    void updateLag_replacesPerFileGauges() {
+        Map<String, Long> lag = new LinkedHashMap<>();
+        lag.put("/var/log/app.log", 1200L);
+        lag.put("/var/log/worker.log", 0L);
+        metrics.updateLag(lag);
+
+        assertThat(registry.get("analytics.ingestion.lag").tag("file", "/var/log/app.log").gauge().value())
+                .isEqualTo(1200.0);
+        assertThat(registry.get("analytics.ingestion.lag.total").gauge().value()).isEqualTo(1200.0);
+
+        metrics.updateLag(Map.of("/var/log/worker.log", 300L));
+
+        assertThat(registry.find("analytics.ingestion.lag").tag("file", "/var/log/app.log").gauge()).isNull();
+        assertThat(registry.get("analytics.ingestion.lag").tag("file", "/var/log/worker.log").gauge().value())
+                .isEqualTo(300.0);
+        assertThat(registry.get("analytics.ingestion.lag.total").gauge().value()).isEqualTo(300.0);
+        assertThat(metrics.totalLag()).isEqualTo(300L);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.dockerhub_clone.analytics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogEventStitcherTest {
+
+    private final LogLineParser parser = new LogLineParser(ZoneOffset.UTC);
+    private final List<String> messages = new ArrayList<>();
+    private final Consumer<LogEvent> sink = event -> messages.add(event.getMessage());
+
+    @Test
+    @DisplayName("accept should fold stack frames into the preceding event and keep its start offset")
+    void accept_foldsStackTrace() {
+        LogEventStitcher stitcher = new LogEventStitcher(parser, 200);
+
+        stitcher.accept("2025-03-14T08:00:00Z ERROR Request failed", 0L, "app.log", sink);
+        stitcher.accept("java.lang.IllegalStateException: boom", 40L, "app.log", sink);
+        stitcher.accept("\tat com.example.Foo.bar(Foo.java:10)", 80L, "app.log", sink);
+        stitcher.accept("Caused by: java.io.IOException: disk", 120L, "app.log", sink);
+
+        assertThat(messages).isEmpty();
+        assertThat(stitcher.pendingStartOffset()).isEqualTo(0L);
+
+        stitcher.accept("2025-03-14T08:00:01Z INFO Recovered", 160L, "app.log", sink);
+
+        assertThat(messages).containsExactly("Request failed\n"
+                + "java.lang.IllegalStateException: boom\n"
+                + "\tat com.example.Foo.bar(Foo.java:10)\n"
+                + "Caused by: java.io.IOException: disk");
+        assertThat(stitcher.pendingStartOffset()).isEqualTo(160L);
+
+        stitcher.flush(sink);
+        assertThat(messages).hasSize(2).last().isEqualTo("Recovered");
+        assertThat(stitcher.hasPending()).isFalse();
+    }
+
+    @Test
+    @DisplayName("accept should cap the number of lines per event and report how many were dropped")
+    void accept_capsLines() {
+        LogEventStitcher stitcher = new LogEventStitcher(parser, 2);
+
+        stitcher.accept("ERROR failed", 0L, "app.log", sink);
+        stitcher.accept("\tat a.B.c(B.java:1)", 13L, "app.log", sink);
+        stitcher.accept("\tat a.B.d(B.java:2)", 33L, "app.log", sink);
+        stitcher.accept("\tat a.B.e(B.java:3)", 53L, "app.log", sink);
+        stitcher.flush(sink);
+
+        assertThat(messages).containsExactly("failed\n\tat a.B.c(B.java:1)\n... 2 more lines");
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.dockerhub_clone.analytics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogFileTailerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("tail should split on raw bytes and report byte-exact offsets for multi-byte lines")
+    void tail_reportsByteExactOffsets() throws IOException {
+        Path file = tempDir.resolve("app.log");
+        Files.write(file, "first\nžćč ünïcode\r\nthird\n".getBytes(StandardCharsets.UTF_8));
+
+        List<String> lines = new ArrayList<>();
+        List<long[]> offsets = new ArrayList<>();
+        long end = new LogFileTailer(4).tail(file, 0L, (line, start, stop) -> {
+            lines.add(line);
+            offsets.add(new long[] {start, stop});
+            return true;
+        });
+
+        assertThat(lines).containsExactly("first", "žćč ünïcode", "third");
+        assertThat(offsets.get(1)[0]).isEqualTo(6L);
+        assertThat(offsets.get(1)[1]).isEqualTo(6L + "žćč ünïcode\r\n".getBytes(StandardCharsets.UTF_8).length);
+        assertThat(end).isEqualTo(Files.size(file));
+    }
+
+    @Test
+    @DisplayName("tail should hold back a trailing partial line until its newline is written")
+    void tail_holdsBackPartialLine() throws IOException {
+        Path file = tempDir.resolve("app.log");
+        Files.write(file, "complete\npart".getBytes(StandardCharsets.UTF_8));
+
+        LogFileTailer tailer = new LogFileTailer();
+        List<String> lines = new ArrayList<>();
+        long offset = tailer.tail(file, 0L, (line, start, stop) -> lines.add(line));
+
+        assertThat(lines).containsExactly("complete");
+        assertThat(offset).isEqualTo(9L);
+
+        Files.write(file, "ial\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        offset = tailer.tail(file, offset, (line, start, stop) -> lines.add(line));
+
+        assertThat(lines).containsExactly("complete", "partial");
+        assertThat(offset).isEqualTo(Files.size(file));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class LogFileWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final LogIngestionService logIngestionService = mock(LogIngestionService.class);
+    private final AtomicInteger runs = new AtomicInteger();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private LogIngestionProperties ingestionProperties;
+    private ElasticsearchProperties elasticsearchProperties;
+    private EventSpool eventSpool;
+    private LogFileWatcher watcher;
+
+    @BeforeEach
+    void setUp() {
+        // a catch-all pattern, so only the exclusions keep our own files from triggering ingestion
+        ingestionProperties = new LogIngestionProperties();
+        ingestionProperties.setEnabled(true);
+        ingestionProperties.setPaths(List.of(tempDir.resolve("*").toString()));
+        ingestionProperties.setCheckpointFile(tempDir.resolve(".checkpoints.json").toString());
+        ingestionProperties.setWatchThrottle(Duration.ofMillis(20));
+        elasticsearchProperties = new ElasticsearchProperties();
+        elasticsearchProperties.setEnabled(true);
+        elasticsearchProperties.setSpoolFile(tempDir.resolve("events.spool").toString());
+        doAnswer(invocation -> runs.incrementAndGet()).when(logIngestionService).shipNewLogLines();
+
+        eventSpool = new EventSpool(elasticsearchProperties, mock(BulkShipper.class), objectMapper);
+        eventSpool.open();
+        startWatcher();
+    }
+
+    private void startWatcher() {
+        watcher = new LogFileWatcher(ingestionProperties, elasticsearchProperties, logIngestionService,
+                new IngestionCheckpointStore(ingestionProperties, objectMapper), eventSpool);
+        watcher.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        watcher.stop();
+        eventSpool.close();
+    }
+
+    @Test
+    @DisplayName("matchesAnyPattern should ignore the checkpoint file, the spool and archives")
+    void matchesAnyPattern_ignoresOwnFilesAndArchives() {
+        assertThat(watcher.matchesAnyPattern(tempDir.resolve("application.log"))).isTrue();
+        assertThat(watcher.matchesAnyPattern(tempDir.resolve(".checkpoints.json"))).isFalse();
+        assertThat(watcher.matchesAnyPattern(tempDir.resolve(".checkpoints.json.tmp"))).isFalse();
+        assertThat(watcher.matchesAnyPattern(tempDir.resolve("events.spool"))).isFalse();
+        assertThat(watcher.matchesAnyPattern(tempDir.resolve("application.log.1.gz"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("changes to ignored files should not trigger ingestion, a log file change should")
+    void watch_triggersOnLogChangesOnly() throws IOException, InterruptedException {
+        Files.writeString(tempDir.resolve(".checkpoints.json.tmp"), "[]");
+        Files.writeString(tempDir.resolve("application.log.1.gz"), "archived");
+        eventSpool.sync();
+        Thread.sleep(300);
+        assertThat(runs).hasValue(0);
+
+        Files.writeString(tempDir.resolve("application.log"), "2025-03-14T08:00:00Z INFO started\n");
+        awaitRuns(1);
+    }
+
+    @Test
+    @DisplayName("a nested glob should see changes in existing subdirectories and in ones created later")
+    void watch_followsNestedDirectories() throws IOException, InterruptedException {
+        Path existing = Files.createDirectories(tempDir.resolve("logs/api"));
+        watcher.stop();
+        ingestionProperties.setPaths(List.of(tempDir.resolve("logs/*/app.log").toString()));
+        startWatcher();
+
+        Files.writeString(existing.resolve("app.log"), "2025-03-14T08:00:00Z INFO started\n");
+        awaitRuns(1);
+
+        Path created = Files.createDirectories(tempDir.resolve("logs/worker"));
+        awaitRuns(2);
+        Thread.sleep(100);
+        int before = runs.get();
+        Files.writeString(created.resolve("app.log"), "2025-03-14T08:00:01Z INFO started\n");
+        awaitRuns(before + 1);
+    }
+
+    private void awaitRuns(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (runs.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(runs).hasValueGreaterThanOrEqualTo(expected);
+    }
+}
@@ -0,0 +1,453 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.example.dockerhub_clone.dto.IngestionStatusDto;
+import com.example.dockerhub_clone.repository.IngestionLeaseRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LogIngestionServiceTest {
+
+    private static final int LINES = 1000;
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final BulkShipper bulkShipper = mock(BulkShipper.class);
+    private final Set<String> shipped = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger shippedItems = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LogIngestionProperties ingestionProperties;
+    private Path logFile;
+    private IngestionCheckpointStore checkpointStore;
+    private BulkDispatcher dispatcher;
+    private IngestRuleSet ingestRuleSet;
+    private LogIngestionService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        logFile = tempDir.resolve("application.log");
+        writeLines(logFile, LINES);
+
+        ingestionProperties = new LogIngestionProperties();
+        ingestionProperties.setEnabled(true);
+        ingestionProperties.setPaths(List.of(logFile.toString()));
+        ingestionProperties.setCheckpointFile(tempDir.resolve(".checkpoints.json").toString());
+        ingestionProperties.setBulkSize(100);
+        ingestionProperties.setBulkConcurrency(4);
+        ingestionProperties.setReadAheadLines(1024);
+        ingestionProperties.setMultilineFlushTimeout(Duration.ZERO);
+
+        ElasticsearchProperties elasticsearchProperties = new ElasticsearchProperties();
+        elasticsearchProperties.setEnabled(true);
+        elasticsearchProperties.setSpoolEnabled(false);
+
+        when(bulkShipper.targetBatchBytes()).thenReturn(Long.MAX_VALUE);
+        checkpointStore = new IngestionCheckpointStore(ingestionProperties, objectMapper);
+        EventSpool eventSpool = new EventSpool(elasticsearchProperties, bulkShipper, objectMapper);
+        dispatcher = new BulkDispatcher(ingestionProperties, elasticsearchProperties, bulkShipper, eventSpool, objectMapper);
+        dispatcher.start();
+        ingestRuleSet = new IngestRuleSet(ingestionProperties, new LogQueryParser());
+        ingestRuleSet.compile();
+        service = new LogIngestionService(
+                ingestionProperties, elasticsearchProperties, bulkShipper, dispatcher, checkpointStore, eventSpool,
+                ingestRuleSet, new IngestionMetrics(meterRegistry),
+                new IngestionLeaderElection(ingestionProperties, mock(IngestionLeaseRepository.class), event -> { }));
+        service.onStart();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.onStop();
+        dispatcher.stop();
+    }
+
+    @Test
+    @DisplayName("shipNewLogLines should ship every line through concurrent bulk requests and checkpoint the end")
+    void shipNewLogLines_shipsEverything() throws IOException {
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            pause();
+            record(invocation.getArgument(0));
+            return true;
+        });
+
+        service.shipNewLogLines();
+
+        assertThat(shipped).hasSize(LINES);
+        assertThat(checkpointOffset()).isEqualTo(Files.size(logFile));
+        IngestionStatusDto status = service.status();
+        assertThat(status.getLinesRead()).isEqualTo(LINES);
+        assertThat(status.getBytesRead()).isEqualTo(Files.size(logFile));
+        assertThat(status.getTotalLag()).isZero();
+    }
+
+    @Test
+    @DisplayName("shipNewLogLines should not checkpoint past a failed batch even if later batches were shipped")
+    void shipNewLogLines_stopsCheckpointAtFailedBatch() throws IOException {
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            pause();
+            BulkPayloadWriter payload = invocation.getArgument(0);
+            if (contains(payload, "message 0250")) {
+                return false;
+            }
+            record(payload);
+            return true;
+        });
+
+        service.shipNewLogLines();
+
+        // the third batch holds events 200..299; its first line is where the next run resumes
+        long committed = checkpointOffset();
+        assertThat(committed).isEqualTo(200L * (line(0).length() + 1));
+        IngestionStatusDto status = service.status();
+        assertThat(status.getTotalLag()).isEqualTo(Files.size(logFile) - committed);
+        assertThat(status.getFiles()).singleElement()
+                .satisfies(file -> assertThat(file.getCommittedOffset()).isEqualTo(committed));
+        assertThat(meterRegistry.get("analytics.ingestion.lag").tag("file", logFile.toString()).gauge().value())
+                .isEqualTo((double) (Files.size(logFile) - committed));
+        assertThat(shipped).contains("message 0000", "message 0199").doesNotContain("message 0250");
+    }
+
+    @Test
+    @DisplayName("shipNewLogLines should finish and retry later when a checkpoint cannot be written")
+    void shipNewLogLines_survivesFailedCheckpoint() throws IOException {
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            record(invocation.getArgument(0));
+            return true;
+        });
+        // a regular file where the checkpoint directory should be makes every commit fail
+        Path blocker = Files.writeString(tempDir.resolve("blocker"), "");
+        ingestionProperties.setCheckpointFile(blocker.resolve(".checkpoints.json").toString());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> service.shipNewLogLines());
+        assertThat(shipped).isNotEmpty();
+
+        ingestionProperties.setCheckpointFile(tempDir.resolve(".checkpoints.json").toString());
+        service.shipNewLogLines();
+        assertThat(checkpointOffset()).isEqualTo(Files.size(logFile));
+        IngestionCheckpointStore reloaded = new IngestionCheckpointStore(ingestionProperties, objectMapper);
+        reloaded.load();
+        long size = Files.size(logFile);
+        assertThat(reloaded.find(logFile)).hasValueSatisfying(
+                checkpoint -> assertThat(checkpoint.offset()).isEqualTo(size));
+    }
+
+    @Test
+    @DisplayName("shipNewLogLines should read a file from the start if its inode belonged to a deleted file")
+    void shipNewLogLines_ignoresCheckpointOfReusedInode() throws IOException {
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            record(invocation.getArgument(0));
+            return true;
+        });
+        // the checkpoint of an earlier file that had the same identity but other content
+        checkpointStore.commit(tempDir.resolve("deleted.log"), IngestionCheckpointStore.fileKeyOf(logFile),
+                Files.size(logFile) / 2, "12:00000000000000aa");
+
+        service.shipNewLogLines();
+
+        assertThat(shipped).hasSize(LINES);
+        assertThat(checkpointOffset()).isEqualTo(Files.size(logFile));
+    }
+
+    @Test
+    @DisplayName("shipNewLogLines should give up on bulk requests that outlast the batch timeout")
+    void shipNewLogLines_boundsWaitForBatches() throws IOException, InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            release.await();
+            return true;
+        });
+        ingestionProperties.setBatchTimeout(Duration.ofMillis(200));
+        ingestionProperties.setBulkSize(LINES);
+
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> service.shipNewLogLines());
+            release.countDown();
+            Thread.sleep(200);
+            // batches that finish after the run gave up are read again instead of being checkpointed
+            assertThat(checkpointOffset()).isEqualTo(-1L);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("shipNewLogLines should ingest every matching file once, even when patterns overlap")
+    void shipNewLogLines_ingestsFilesInParallelOnce() throws IOException {
+        Path workerLog = tempDir.resolve("worker.log");
+        writeLines(workerLog, 500);
+        ingestionProperties.setPaths(List.of(tempDir.resolve("*.log").toString(), logFile.toString()));
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            pause();
+            record(invocation.getArgument(0));
+            return true;
+        });
+
+        service.shipNewLogLines();
+
+        assertThat(shippedItems).hasValue(LINES + 500);
+        assertThat(checkpointOffset(logFile)).isEqualTo(Files.size(logFile));
+        assertThat(checkpointOffset(workerLog)).isEqualTo(Files.size(workerLog));
+    }
+
+    @Test
+    @DisplayName("shipNewLogLines should ship a large backlog in budget-sized slices without losing or repeating lines")
+    void shipNewLogLines_drainsBacklogInSlices() throws IOException {
+        ingestionProperties.setRunByteBudget(10_000);
+        ingestionProperties.setRunContinuationDelay(Duration.ofHours(1));
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            record(invocation.getArgument(0));
+            return true;
+        });
+
+        service.shipNewLogLines();
+        long firstSlice = checkpointOffset();
+        // the last line read stays pending, since the next line might continue it
+        assertThat(firstSlice).isBetween(9_900L, 10_100L);
+
+        for (int run = 0; run < 4; run++) {
+            service.shipNewLogLines();
+        }
+
+        assertThat(checkpointOffset()).isEqualTo(Files.size(logFile));
+        assertThat(shipped).hasSize(LINES);
+        assertThat(shippedItems).hasValue(LINES);
+    }
+
+    @Test
+    @DisplayName("shipNewLogLines should finish a rotated file by its file key before reading its successor")
+    void shipNewLogLines_drainsRotatedFile() throws IOException {
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            record(invocation.getArgument(0));
+            return true;
+        });
+        service.shipNewLogLines();
+        Files.writeString(logFile, line(LINES) + "\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        Path rotated = Files.move(logFile, tempDir.resolve("application.log.1"));
+        Files.writeString(logFile, line(LINES + 1) + "\n", StandardCharsets.UTF_8);
+
+        service.shipNewLogLines();
+
+        assertThat(shipped).hasSize(LINES + 2).contains("message %04d".formatted(LINES), "message %04d".formatted(LINES + 1));
+        assertThat(shippedItems).hasValue(LINES + 2);
+        assertThat(checkpointOffset(rotated)).isEqualTo(Files.size(rotated));
+        assertThat(checkpointOffset(logFile)).isEqualTo(Files.size(logFile));
+    }
+
+    @Test
+    @DisplayName("ingestArchive should ship only what was not tailed before rotation, under the tailed document ids")
+    void ingestArchive_continuesTailedFile() throws IOException {
+        List<String> ids = new CopyOnWriteArrayList<>();
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            BulkPayloadWriter payload = invocation.getArgument(0);
+            payload.forEachItem((bytes, offset, length) -> {
+                String action = new String(bytes, offset, length, StandardCharsets.UTF_8).split("\n")[0];
+                ids.add(action.replaceAll(".*\"_id\":\"([^\"]+)\".*", "$1"));
+            });
+            record(payload);
+            return true;
+        });
+        service.shipNewLogLines();
+        long tailedOffset = checkpointOffset();
+        String idPrefix = LogIngestionService.documentIdPrefix(logFile.toString(),
+                IngestionCheckpointStore.fileKeyOf(logFile), IngestionCheckpointStore.headOf(logFile));
+        Files.writeString(logFile, line(LINES) + "\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        Path archive = tempDir.resolve("application.log.1.gz");
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(archive))) {
+            Files.copy(logFile, output);
+        }
+        Files.delete(logFile);
+        shipped.clear();
+        ids.clear();
+
+        assertThat(service.ingestArchive(archive)).isTrue();
+
+        assertThat(shipped).containsExactly("message %04d".formatted(LINES));
+        assertThat(ids).containsExactly(idPrefix + tailedOffset);
+    }
+
+    @Test
+    @DisplayName("ingestArchive should ship an archive that was never tailed in full")
+    void ingestArchive_shipsUnknownArchive() throws IOException {
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            record(invocation.getArgument(0));
+            return true;
+        });
+        Path archive = tempDir.resolve("older.log.gz");
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(archive))) {
+            Files.copy(logFile, output);
+        }
+
+        assertThat(service.ingestArchive(archive)).isTrue();
+
+        assertThat(shipped).hasSize(LINES);
+    }
+
+    @Test
+    @DisplayName("shipNewLogLines should collapse a storm of repeated lines and still checkpoint the end")
+    void shipNewLogLines_collapsesStorms() throws IOException {
+        // the generated INFO lines differ only in digits; INFO is not collapsed by default
+        ingestionProperties.setCollapseLevels(List.of("INFO"));
+        List<String> summaries = new CopyOnWriteArrayList<>();
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            BulkPayloadWriter payload = invocation.getArgument(0);
+            payload.forEachItem((bytes, offset, length) -> {
+                String document = new String(bytes, offset, length, StandardCharsets.UTF_8).split("\n")[1];
+                shippedItems.incrementAndGet();
+                try {
+                    int repeats = objectMapper.readTree(document).path("repeat_count").asInt();
+                    if (repeats > 0) {
+                        summaries.add(repeats + " " + objectMapper.readTree(document).path("message").asText());
+                    }
+                } catch (IOException exception) {
+                    throw new IllegalStateException(exception);
+                }
+            });
+            return true;
+        });
+
+        service.shipNewLogLines();
+
+        assertThat(shippedItems).hasValue(2);
+        assertThat(summaries).containsExactly((LINES - 1) + " message 0001");
+        assertThat(checkpointOffset()).isEqualTo(Files.size(logFile));
+    }
+
+    @Test
+    @DisplayName("shipNewLogLines should keep a collapse window open across runs and hold the checkpoint behind it")
+    void shipNewLogLines_collapsesStormsAcrossRuns() throws IOException {
+        ingestionProperties.setCollapseWindow(Duration.ofMinutes(1));
+        List<String> documents = new CopyOnWriteArrayList<>();
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            BulkPayloadWriter payload = invocation.getArgument(0);
+            payload.forEachItem((bytes, offset, length) -> {
+                String document = new String(bytes, offset, length, StandardCharsets.UTF_8).split("\n")[1];
+                try {
+                    JsonNode node = objectMapper.readTree(document);
+                    documents.add(node.path("repeat_count").asInt() + " " + node.path("message").asText());
+                } catch (IOException exception) {
+                    throw new IllegalStateException(exception);
+                }
+            });
+            return true;
+        });
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        String first = now + " WARN Registry unreachable, attempt 1\n";
+        Files.writeString(logFile, first + now + " WARN Registry unreachable, attempt 2\n"
+                + now + " WARN Registry unreachable, attempt 3\n");
+
+        service.shipNewLogLines();
+        assertThat(documents).containsExactly("0 Registry unreachable, attempt 1");
+        assertThat(checkpointOffset()).isEqualTo(first.length());
+
+        Files.writeString(logFile, now.plusSeconds(1) + " WARN Registry unreachable, attempt 4\n",
+                StandardOpenOption.APPEND);
+        service.shipNewLogLines();
+        assertThat(documents).hasSize(1);
+        assertThat(checkpointOffset()).isEqualTo(first.length());
+
+        Files.writeString(logFile, now.plusSeconds(120) + " WARN Registry unreachable, attempt 5\n",
+                StandardOpenOption.APPEND);
+        service.shipNewLogLines();
+        assertThat(documents).containsExactly(
+                "0 Registry unreachable, attempt 1",
+                "3 Registry unreachable, attempt 2",
+                "0 Registry unreachable, attempt 5");
+        assertThat(checkpointOffset()).isEqualTo(Files.size(logFile));
+    }
+
+    @Test
+    @DisplayName("shipNewLogLines should drop events matched by an ingest rule and checkpoint past them")
+    void shipNewLogLines_appliesIngestRules() throws IOException {
+        LogIngestionProperties.IngestRule rule = new LogIngestionProperties.IngestRule();
+        rule.setQuery("level = INFO AND message CONTAINS \"message 01\"");
+        ingestionProperties.setIngestRules(List.of(rule));
+        ingestRuleSet.compile();
+        when(bulkShipper.ship(any())).thenAnswer(invocation -> {
+            record(invocation.getArgument(0));
+            return true;
+        });
+
+        service.shipNewLogLines();
+
+        assertThat(shipped).hasSize(LINES - 100).doesNotContain("message 0100", "message 0199");
+        assertThat(checkpointOffset()).isEqualTo(Files.size(logFile));
+    }
+
+    private static void writeLines(Path file, int count) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            content.append(line(i)).append('\n');
+        }
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    private long checkpointOffset() throws IOException {
+        return checkpointOffset(logFile);
+    }
+
+    private long checkpointOffset(Path file) throws IOException {
+        return checkpointStore.findByFileKey(IngestionCheckpointStore.fileKeyOf(file),
+                        IngestionCheckpointStore.headOf(file))
+                .map(IngestionCheckpointStore.Checkpoint::offset)
+                .orElse(-1L);
+    }
+
+    private static String line(int index) {
+        return "2025-03-14T08:00:00Z INFO message %04d".formatted(index);
+    }
+
+    private static void pause() throws InterruptedException {
+        Thread.sleep(ThreadLocalRandom.current().nextInt(5));
+    }
+
+    private void record(BulkPayloadWriter payload) {
+        payload.forEachItem((bytes, offset, length) -> shipped.add(message(bytes, offset, length)));
+        shippedItems.addAndGet(payload.size());
+    }
+
+    private boolean contains(BulkPayloadWriter payload, String message) {
+        boolean[] found = {false};
+        payload.forEachItem((bytes, offset, length) -> found[0] |= message.equals(message(bytes, offset, length)));
+        return found[0];
+    }
+
+    private String message(byte[] bytes, int offset, int length) {
+        String[] lines = new String(bytes, offset, length, StandardCharsets.UTF_8).split("\n");
+        try {
+            return objectMapper.readTree(lines[1]).path("message").asText();
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.dockerhub_clone.analytics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link LogLineParser} with the substring/formatter based {@code parseLine} it replaced, on a mix
+ * of Spring Boot 3 console lines, stack frames and lines without a timestamp, and measures the JSON fast
+ * path on the same events written as logstash-style lines.
+ * <p>
+ * Not part of the test suite. Run with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     com.example.dockerhub_clone.analytics.LogLineParserBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogLineParserBenchmark {
+
+    private static final String SOURCE = "/app/logs/application.log";
+
+    private static final String[] LINES = {
+            "2025-03-14T09:26:53.589+01:00  INFO 48213 --- [dockerhub-clone-backend] [           main] "
+                    + "c.e.d.DockerhubCloneApplication          : Started DockerhubCloneApplication in 6.412 seconds",
+            "2025-03-14T09:26:54.002+01:00 DEBUG 48213 --- [dockerhub-clone-backend] [nio-8080-exec-3] "
+                    + "o.s.web.servlet.DispatcherServlet        : GET \"/api/repositories/explore?page=0\", parameters={masked}",
+            "2025-03-14T09:26:54.117+01:00  WARN 48213 --- [dockerhub-clone-backend] [nio-8080-exec-7] "
+                    + "o.h.engine.jdbc.spi.SqlExceptionHelper   : SQL Error: 0, SQLState: 23505",
+            "2025-03-14T09:26:54.118+01:00 ERROR 48213 --- [dockerhub-clone-backend] [nio-8080-exec-7] "
+                    + "o.a.c.c.C.[.[.[/].[dispatcherServlet]    : Servlet.service() threw exception",
+            "\tat com.example.dockerhub_clone.service.RepositoryService.createRepo(RepositoryService.java:61)",
+            "\tat org.springframework.aop.framework.ReflectiveMethodInvocation.proceed(ReflectiveMethodInvocation.java:184)",
+            "Caused by: org.postgresql.util.PSQLException: ERROR: duplicate key value violates unique constraint",
+            "2025-03-14T08:26:54Z [INFO] Scheduled ingestion run finished",
+    };
+
+    /**
+     * The same events as logstash-style JSON lines, as written by a JSON encoder.
+     */
+    private static final String[] JSON_LINES = {
+            "{\"@timestamp\":\"2025-03-14T09:26:53.589+01:00\",\"message\":\"Started DockerhubCloneApplication in 6.412 seconds\","
+                    + "\"logger_name\":\"c.e.d.DockerhubCloneApplication\",\"thread_name\":\"main\",\"level\":\"INFO\"}",
+            "{\"@timestamp\":\"2025-03-14T09:26:54.002+01:00\",\"message\":\"GET \\\"/api/repositories/explore?page=0\\\"\","
+                    + "\"logger_name\":\"o.s.web.servlet.DispatcherServlet\",\"thread_name\":\"nio-8080-exec-3\",\"level\":\"DEBUG\"}",
+            "{\"@timestamp\":\"2025-03-14T09:26:54.117+01:00\",\"message\":\"SQL Error: 0, SQLState: 23505\","
+                    + "\"logger_name\":\"o.h.engine.jdbc.spi.SqlExceptionHelper\",\"thread_name\":\"nio-8080-exec-7\",\"level\":\"WARN\"}",
+            "{\"@timestamp\":\"2025-03-14T09:26:54.118+01:00\",\"message\":\"Servlet.service() threw exception\","
+                    + "\"logger_name\":\"o.a.c.c.C.[.[.[/].[dispatcherServlet]\",\"thread_name\":\"nio-8080-exec-7\",\"level\":\"ERROR\","
+                    + "\"stack_trace\":\"org.postgresql.util.PSQLException: duplicate key\\n\\tat com.example.Repo.create(Repo.java:61)\"}",
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LogLineParser parser = new LogLineParser();
+    private final LegacyParser legacyParser = new LegacyParser(objectMapper);
+    private final LogEvent event = new LogEvent();
+
+    @Benchmark
+    public void logLineParser(Blackhole blackhole) {
+        for (String line : LINES) {
+            blackhole.consume(parser.parse(line, SOURCE, event));
+            blackhole.consume(event.getMessage());
+        }
+    }
+
+    @Benchmark
+    public void jsonLines(Blackhole blackhole) {
+        for (String line : JSON_LINES) {
+            blackhole.consume(parser.parse(line, SOURCE, event));
+            blackhole.consume(event.getMessage());
+        }
+    }
+
+    @Benchmark
+    public void legacyParseLine(Blackhole blackhole) {
+        for (String line : LINES) {
+            blackhole.consume(legacyParser.parseLine(line, SOURCE));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LogLineParserBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    /**
+     * Verbatim copy of the former {@code LogIngestionService.parseLine}, kept as the baseline.
+     */
+    static final class LegacyParser {
+
+        private static final DateTimeFormatter[] TIMESTAMP_FORMATS = new DateTimeFormatter[] {
+                DateTimeFormatter.ISO_INSTANT,
+                DateTimeFormatter.ISO_OFFSET_DATE_TIME,
+                DateTimeFormatter.ISO_LOCAL_DATE_TIME
+        };
+
+        private final ObjectMapper objectMapper;
+
+        LegacyParser(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+        }
+
+        Optional<ObjectNode> parseLine(String line, String source) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                return Optional.empty();
+            }
+
+            Instant parsedTimestamp = null;
+            String levelCandidate = null;
+            String message = trimmed;
+
+            int firstSpace = trimmed.indexOf(' ');
+            if (firstSpace > 0) {
+                String potentialTimestamp = trimmed.substring(0, firstSpace).replace('[', ' ').replace(']', ' ').trim();
+                Instant timestamp = tryParseInstant(potentialTimestamp);
+                if (timestamp != null) {
+                    parsedTimestamp = timestamp;
+                    message = trimmed.substring(firstSpace + 1).trim();
+                }
+            }
+
+            if (message.startsWith("[")) {
+                int closing = message.indexOf(']');
+                if (closing > 0) {
+                    levelCandidate = message.substring(1, closing).trim();
+                    message = message.substring(closing + 1).trim();
+                }
+            } else {
+                int secondSpace = message.indexOf(' ');
+                if (secondSpace > 0) {
+                    String potentialLevel = message.substring(0, secondSpace);
+                    if (potentialLevel.chars().allMatch(Character::isLetter)) {
+                        levelCandidate = potentialLevel.toUpperCase(Locale.ROOT);
+                        message = message.substring(secondSpace + 1).trim();
+                    }
+                }
+            }
+
+            Instant timestamp = parsedTimestamp != null ? parsedTimestamp : Instant.now();
+
+            ObjectNode document = objectMapper.createObjectNode();
+            document.put("timestamp", timestamp.toString());
+            if (levelCandidate != null) {
+                document.put("level", levelCandidate.toUpperCase(Locale.ROOT));
+            }
+            document.put("message", message);
+            document.put("raw", line);
+            document.put("source", source);
+            return Optional.of(document);
+        }
+
+        private Instant tryParseInstant(String candidate) {
+            if (candidate == null || candidate.isEmpty()) {
+                return null;
+            }
+            for (DateTimeFormatter formatter : TIMESTAMP_FORMATS) {
+                try {
+                    if (formatter == DateTimeFormatter.ISO_LOCAL_DATE_TIME) {
+                        LocalDateTime localDateTime = LocalDateTime.parse(candidate, formatter);
+                        return localDateTime.atZone(ZoneId.systemDefault()).toInstant();
+                    } else if (formatter == DateTimeFormatter.ISO_INSTANT) {
+                        return Instant.parse(candidate);
+                    }
+                    return OffsetDateTime.parse(candidate, formatter).toInstant();
+                } catch (DateTimeParseException ignored) {
+                    // try the next formatter
+                }
+            }
+            return null;
+        }
+    }
+}
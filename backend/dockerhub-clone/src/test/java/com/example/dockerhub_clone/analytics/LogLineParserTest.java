@@ -0,0 +1,143 @@
+package com.example.dockerhub_clone.analytics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LogLineParserTest {
+
+    private final LogLineParser parser = new LogLineParser(ZoneOffset.UTC);
+    private final LogEvent event = new LogEvent();
+
+    @Test
+    @DisplayName("parse should extract offset timestamp and padded level from a Spring Boot line")
+    void parse_springBootLine() {
+        String line = "2025-03-14T09:26:53.589+01:00  WARN 48213 --- [main] c.e.d.App : Slow query";
+
+        assertThat(parser.parse(line, "app.log", event)).isTrue();
+
+        assertThat(event.getTimestamp()).isEqualTo(Instant.parse("2025-03-14T08:26:53.589Z"));
+        assertThat(event.getLevel()).isEqualTo("WARN");
+        assertThat(event.getMessage()).isEqualTo("48213 --- [main] c.e.d.App : Slow query");
+        assertThat(event.getRaw()).isEqualTo(line);
+        assertThat(event.getSource()).isEqualTo("app.log");
+    }
+
+    @Test
+    @DisplayName("parse should accept bracketed instants and levels and local date-times")
+    void parse_bracketedAndLocalTimestamps() {
+        parser.parse("[2025-03-14T08:26:54Z] [error] Boom", "app.log", event);
+        assertThat(event.getTimestamp()).isEqualTo(Instant.parse("2025-03-14T08:26:54Z"));
+        assertThat(event.getLevel()).isEqualTo("ERROR");
+        assertThat(event.getMessage()).isEqualTo("Boom");
+
+        parser.parse("2025-03-14T08:26 DEBUG tick", "app.log", event);
+        assertThat(event.getTimestamp()).isEqualTo(Instant.parse("2025-03-14T08:26:00Z"));
+        assertThat(event.getLevel()).isEqualTo("DEBUG");
+    }
+
+    @Test
+    @DisplayName("parse should extract pid, thread, logger and request id with a source pattern")
+    void parse_withLinePattern() {
+        LogLineParser patterned = new LogLineParser(ZoneOffset.UTC, LinePattern.compile(
+                "{timestamp} {level} {pid} --- [{*}] [{thread}] [{request_id}] {logger} : {message}"));
+        String line = "2025-03-14T09:26:53.589+01:00  WARN 48213 --- [dockerhub-clone] [    http-nio-1] "
+                + "[7f3a9c] c.e.d.RepositoryService           : Slow query : 812 ms";
+
+        assertThat(patterned.startsEvent(line)).isTrue();
+        assertThat(patterned.parse(line, "app.log", event)).isTrue();
+
+        assertThat(event.getTimestamp()).isEqualTo(Instant.parse("2025-03-14T08:26:53.589Z"));
+        assertThat(event.getLevel()).isEqualTo("WARN");
+        assertThat(event.getPid()).isEqualTo("48213");
+        assertThat(event.getThread()).isEqualTo("http-nio-1");
+        assertThat(event.getRequestId()).isEqualTo("7f3a9c");
+        assertThat(event.getLogger()).isEqualTo("c.e.d.RepositoryService");
+        assertThat(event.getMessage()).isEqualTo("Slow query : 812 ms");
+
+        // an empty MDC value yields no field, a line in another layout falls back to the heuristics
+        patterned.parse("2025-03-14T08:00:00Z INFO 1 --- [app] [main] [] c.e.d.App : Started", "app.log", event);
+        assertThat(event.getRequestId()).isNull();
+        assertThat(event.getLogger()).isEqualTo("c.e.d.App");
+        patterned.parse("2025-03-14T08:00:00Z ERROR plain line", "app.log", event);
+        assertThat(event.getLevel()).isEqualTo("ERROR");
+        assertThat(event.getPid()).isNull();
+        assertThat(event.getMessage()).isEqualTo("plain line");
+        assertThat(patterned.startsEvent("\tat com.example.Foo.bar(Foo.java:10)")).isFalse();
+    }
+
+    @Test
+    @DisplayName("startsEvent should keep unindented stack trace lines with their event even if the pattern matches")
+    void startsEvent_continuationBeforePattern() {
+        LogLineParser patterned = new LogLineParser(ZoneOffset.UTC, LinePattern.compile("{logger} {message}"));
+
+        assertThat(patterned.startsEvent("c.e.d.App Started in 2.1 seconds")).isTrue();
+        assertThat(patterned.startsEvent("Caused by: java.io.IOException: disk full")).isFalse();
+        assertThat(patterned.startsEvent("Suppressed: java.lang.IllegalStateException: closed")).isFalse();
+        assertThat(patterned.startsEvent("at com.example.Foo.bar(Foo.java:10)")).isFalse();
+        assertThat(patterned.startsEvent("... 42 more")).isFalse();
+    }
+
+    @Test
+    @DisplayName("LinePattern.compile should reject unknown fields and adjacent fields")
+    void compile_rejectsInvalidPatterns() {
+        assertThatThrownBy(() -> LinePattern.compile("{timestamp} {user} {message}"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("{user}");
+        assertThatThrownBy(() -> LinePattern.compile("{timestamp}{level} {message}"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LinePattern.compile("no fields"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("parse should keep lines without timestamp or known level as plain messages")
+    void parse_withoutTimestampOrLevel() {
+        Instant before = Instant.now();
+
+        parser.parse("\tat com.example.Foo.bar(Foo.java:10)", "app.log", event);
+
+        assertThat(event.getTimestamp()).isAfterOrEqualTo(before);
+        assertThat(event.getLevel()).isNull();
+        assertThat(event.getMessage()).isEqualTo("at com.example.Foo.bar(Foo.java:10)");
+
+        parser.parse("2025-13-45T99:99:99Z Started app", "app.log", event);
+        assertThat(event.getLevel()).isNull();
+        assertThat(event.getMessage()).isEqualTo("2025-13-45T99:99:99Z Started app");
+    }
+
+    @Test
+    @DisplayName("parse should map logstash-style JSON fields and fall back to text for malformed JSON")
+    void parse_jsonLine() {
+        String line = "{\"@timestamp\":\"2025-03-14T09:26:53.589+01:00\",\"@version\":\"1\","
+                + "\"message\":\"Request failed\",\"logger_name\":\"c.e.d.service.RepositoryService\","
+                + "\"thread_name\":\"http-nio-8080-exec-7\",\"level\":\"ERROR\",\"level_value\":40000,"
+                + "\"mdc\":{\"requestId\":\"abc\"},\"stack_trace\":\"java.lang.IllegalStateException: boom\\n\\tat X\"}";
+
+        assertThat(parser.startsEvent(line)).isTrue();
+        assertThat(parser.parse(line, "app.json", event)).isTrue();
+
+        assertThat(event.getTimestamp()).isEqualTo(Instant.parse("2025-03-14T08:26:53.589Z"));
+        assertThat(event.getLevel()).isEqualTo("ERROR");
+        assertThat(event.getMessage()).isEqualTo("Request failed");
+        assertThat(event.getLogger()).isEqualTo("c.e.d.service.RepositoryService");
+        assertThat(event.getThread()).isEqualTo("http-nio-8080-exec-7");
+        assertThat(event.getStackTrace()).isEqualTo("java.lang.IllegalStateException: boom\n\tat X");
+        assertThat(event.getRaw()).isEqualTo(line);
+
+        parser.parse("{not json}", "app.json", event);
+        assertThat(event.getMessage()).isEqualTo("{not json}");
+        assertThat(event.getLogger()).isNull();
+    }
+
+    @Test
+    @DisplayName("parse should reject blank lines")
+    void parse_blankLine() {
+        assertThat(parser.parse("   \t ", "app.log", event)).isFalse();
+    }
+}
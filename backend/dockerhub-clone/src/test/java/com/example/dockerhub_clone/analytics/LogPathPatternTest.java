@@ -0,0 +1,85 @@
+package com.example.dockerhub_clone.analytics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogPathPatternTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("compile should treat a path without wildcards as a literal file")
+    void compile_literal() throws IOException {
+        Path file = Files.createFile(tempDir.resolve("app.log"));
+        LogPathPattern pattern = LogPathPattern.compile(file.toString());
+
+        assertThat(pattern.isLiteral()).isTrue();
+        assertThat(pattern.getBaseDirectory()).isEqualTo(tempDir.toAbsolutePath().normalize());
+        assertThat(pattern.matches(file)).isTrue();
+        assertThat(pattern.resolve()).containsExactly(file);
+    }
+
+    @Test
+    @DisplayName("resolve should match a glob only as deep as the pattern reaches, oldest file first")
+    void resolve_globOldestFirst() throws IOException {
+        Path newer = touch(tempDir.resolve("app.log"), "2024-05-02T00:00:00Z");
+        Path older = touch(tempDir.resolve("worker.log"), "2024-05-01T00:00:00Z");
+        touch(tempDir.resolve("app.log.1.gz"), "2024-04-30T00:00:00Z");
+        Files.createDirectories(tempDir.resolve("nested"));
+        touch(tempDir.resolve("nested/deep.log"), "2024-04-29T00:00:00Z");
+
+        LogPathPattern pattern = LogPathPattern.compile(tempDir.resolve("*.log").toString());
+
+        assertThat(pattern.isLiteral()).isFalse();
+        assertThat(pattern.getBaseDirectory()).isEqualTo(tempDir.toAbsolutePath().normalize());
+        assertThat(pattern.resolve()).containsExactly(older, newer);
+    }
+
+    @Test
+    @DisplayName("resolve should descend into subdirectories for ** patterns")
+    void resolve_recursiveGlob() throws IOException {
+        Files.createDirectories(tempDir.resolve("a/b"));
+        Path deep = touch(tempDir.resolve("a/b/deep.log"), "2024-05-01T00:00:00Z");
+        Path shallow = touch(tempDir.resolve("a/shallow.log"), "2024-05-02T00:00:00Z");
+        touch(tempDir.resolve("a/b/notes.txt"), "2024-05-03T00:00:00Z");
+
+        LogPathPattern pattern = LogPathPattern.compile(tempDir.resolve("a/**.log").toString());
+
+        assertThat(pattern.getBaseDirectory()).isEqualTo(tempDir.resolve("a").toAbsolutePath().normalize());
+        assertThat(pattern.resolve()).containsExactly(deep, shallow);
+        assertThat(pattern.matches(tempDir.resolve("a/b/other.log"))).isTrue();
+        assertThat(pattern.matches(tempDir.resolve("b/other.log"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("reaches should cover the directories a pattern can match files in")
+    void reaches_directoriesUpToPatternDepth() {
+        LogPathPattern nested = LogPathPattern.compile(tempDir.resolve("logs/*/app.log").toString());
+        LogPathPattern recursive = LogPathPattern.compile(tempDir.resolve("logs/**.log").toString());
+        LogPathPattern literal = LogPathPattern.compile(tempDir.resolve("logs/app.log").toString());
+
+        assertThat(nested.reaches(tempDir.resolve("logs"))).isTrue();
+        assertThat(nested.reaches(tempDir.resolve("logs/worker"))).isTrue();
+        assertThat(nested.reaches(tempDir.resolve("logs/worker/old"))).isFalse();
+        assertThat(nested.reaches(tempDir)).isFalse();
+        assertThat(recursive.reaches(tempDir.resolve("logs/a/b/c"))).isTrue();
+        assertThat(literal.reaches(tempDir.resolve("logs"))).isTrue();
+        assertThat(literal.reaches(tempDir.resolve("logs/worker"))).isFalse();
+    }
+
+    private static Path touch(Path file, String modified) throws IOException {
+        Files.writeString(file, "line\n");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse(modified)));
+        return file;
+    }
+}
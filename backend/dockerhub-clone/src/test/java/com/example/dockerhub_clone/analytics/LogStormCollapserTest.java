@@ -0,0 +1,104 @@
+package com.example.dockerhub_clone.analytics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class LogStormCollapserTest {
+
+    private static final Instant START = Instant.parse("2025-03-14T08:00:00Z");
+
+    private final LogStormCollapser collapser = new LogStormCollapser(Duration.ofSeconds(1), 64);
+    private final List<LogEvent> emitted = new ArrayList<>();
+
+    @Test
+    @DisplayName("accept should ship the first occurrence and one summary per window for repeats")
+    void accept_collapsesRepeatsPerWindow() {
+        for (int i = 0; i < 100; i++) {
+            accept(i * 5L, "WARN", "Connection to db-" + i + " refused after " + (i * 7) + " ms", i * 100L);
+        }
+        accept(300, "INFO", "Request handled", 10_000L);
+        assertThat(emitted).extracting(LogEvent::getMessage)
+                .containsExactly("Connection to db-0 refused after 0 ms", "Request handled");
+        assertThat(collapser.watermark()).isEqualTo(100L);
+
+        // the first event after the window closes releases the summary of the 99 repeats, then ships itself
+        accept(1500, "INFO", "Request handled", 10_100L);
+        assertThat(emitted).hasSize(4);
+        assertThat(emitted.get(3).getOffset()).isEqualTo(10_100L);
+        LogEvent summary = emitted.get(2);
+        assertThat(summary.getRepeatCount()).isEqualTo(99);
+        assertThat(summary.getMessage()).isEqualTo("Connection to db-1 refused after 7 ms");
+        assertThat(summary.getFirstTimestamp()).isEqualTo(START.plusMillis(5));
+        assertThat(summary.getLastTimestamp()).isEqualTo(START.plusMillis(495));
+        assertThat(summary.getOffset()).isEqualTo(100L);
+        assertThat(collapser.hasPending()).isFalse();
+        assertThat(collapser.watermark()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    @DisplayName("flush should release every pending summary and keep distinct levels apart")
+    void flush_releasesPendingSummaries() {
+        accept(0, "WARN", "Timeout", 0L);
+        accept(1, "ERROR", "Timeout", 10L);
+        accept(2, "WARN", "Timeout", 20L);
+        accept(3, "ERROR", "Timeout", 30L);
+        assertThat(emitted).hasSize(2);
+        assertThat(collapser.watermark()).isEqualTo(20L);
+
+        collapser.flush(this::record);
+
+        assertThat(emitted).extracting(LogEvent::getLevel, LogEvent::getRepeatCount)
+                .containsExactlyInAnyOrder(
+                        tuple("WARN", 0),
+                        tuple("ERROR", 0),
+                        tuple("WARN", 1),
+                        tuple("ERROR", 1));
+        assertThat(collapser.hasPending()).isFalse();
+    }
+
+    @Test
+    @DisplayName("expire should release summaries of ended windows only, and other levels should pass through")
+    void expire_releasesEndedWindows() {
+        LogStormCollapser warnings = new LogStormCollapser(Duration.ofSeconds(1), 64, List.of("warn"));
+        for (int i = 0; i < 3; i++) {
+            accept(warnings, i, "WARN", "Timeout", i * 10L);
+            accept(warnings, i, "INFO", "Tick", 100L + i * 10L);
+        }
+        assertThat(emitted).extracting(LogEvent::getMessage).containsExactly("Timeout", "Tick", "Tick", "Tick");
+
+        warnings.expire(START.plusMillis(999), this::record);
+        assertThat(warnings.hasPending()).isTrue();
+
+        warnings.expire(START.plusMillis(1000), this::record);
+        assertThat(emitted).hasSize(5);
+        assertThat(emitted.get(4).getRepeatCount()).isEqualTo(2);
+        assertThat(warnings.hasPending()).isFalse();
+    }
+
+    private void accept(long millis, String level, String message, long offset) {
+        accept(collapser, millis, level, message, offset);
+    }
+
+    private void accept(LogStormCollapser target, long millis, String level, String message, long offset) {
+        LogEvent event = new LogEvent();
+        event.setTimestamp(START.plusMillis(millis));
+        event.setLevel(level);
+        event.setMessage(message);
+        event.setOffset(offset);
+        target.accept(event, this::record);
+    }
+
+    private void record(LogEvent event) {
+        LogEvent copy = new LogEvent();
+        copy.copyFrom(event);
+        emitted.add(copy);
+    }
+}
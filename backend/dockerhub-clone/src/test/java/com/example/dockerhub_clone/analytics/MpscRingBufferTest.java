@@ -0,0 +1,84 @@
+package com.example.dockerhub_clone.analytics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MpscRingBufferTest {
+
+    @Test
+    @DisplayName("offer should fail once the buffer is full and succeed again after a poll")
+    void offer_isBounded() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(3);
+        assertThat(buffer.capacity()).isEqualTo(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+        assertThat(buffer.offer(4)).isFalse();
+        assertThat(buffer.poll()).isZero();
+        assertThat(buffer.offer(4)).isTrue();
+
+        List<Integer> rest = new ArrayList<>();
+        for (Integer next = buffer.poll(); next != null; next = buffer.poll()) {
+            rest.add(next);
+        }
+        assertThat(rest).containsExactly(1, 2, 3, 4);
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("poll should see every element of concurrent producers once, in each producer's order")
+    void poll_keepsPerProducerOrder() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 50_000;
+        MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(1024);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException exception) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    long[] element = {producer, i};
+                    while (!buffer.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        long[] expected = new long[producers];
+        int outOfOrder = 0;
+        int received = 0;
+        while (received < producers * perProducer) {
+            long[] element = buffer.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+            if (element[1] != expected[(int) element[0]]++) {
+                outOfOrder++;
+            }
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(outOfOrder).isZero();
+        assertThat(expected).containsOnly(perProducer);
+        assertThat(buffer.poll()).isNull();
+    }
+}
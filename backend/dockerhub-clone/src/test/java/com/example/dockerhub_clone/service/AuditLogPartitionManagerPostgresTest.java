@@ -0,0 +1,160 @@
+package com.example.dockerhub_clone.service;
+
+import com.example.dockerhub_clone.config.AuditProperties;
+import com.example.dockerhub_clone.repository.AuditLogRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs {@link AuditLogPartitionManager} against a real PostgreSQL server, in a throwaway schema. Skipped
+ * unless a server is given, e.g.
+ * {@code mvn test -Daudit.test.postgres-url=jdbc:postgresql://localhost:5432/dockerhub
+ * -Daudit.test.postgres-user=postgres -Daudit.test.postgres-password=postgres} against
+ * {@code docker compose up -d postgres}. CI runs it against a PostgreSQL service container.
+ */
+@EnabledIfSystemProperty(named = "audit.test.postgres-url", matches = ".+")
+class AuditLogPartitionManagerPostgresTest {
+
+    private final String schema = "audit_it_" + UUID.randomUUID().toString().replace("-", "");
+    private final AuditProperties auditProperties = new AuditProperties();
+    private JdbcTemplate admin;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        admin = new JdbcTemplate(dataSource(null));
+        admin.execute("create schema " + schema);
+
+        DriverManagerDataSource dataSource = dataSource(schema);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        // the tables as Hibernate creates them from User and AuditLog
+        jdbcTemplate.execute("create table users (id bigint primary key, username varchar(255))");
+        jdbcTemplate.execute("create table audit_logs (id bigint not null primary key, action varchar(255),"
+                + " target_type varchar(255), target_id varchar(255), metadata varchar(4000),"
+                + " created_at timestamp(6) with time zone not null,"
+                + " actor_user_id bigint constraint fk_audit_logs_actor references users)");
+        jdbcTemplate.execute("create index idx_audit_logs_created on audit_logs (created_at desc, id desc)");
+        jdbcTemplate.update("insert into users (id, username) values (1, 'owner')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        admin.execute("drop schema if exists " + schema + " cascade");
+    }
+
+    @Test
+    @DisplayName("start should convert audit_logs into monthly partitions and keep existing rows")
+    void start_convertsExistingTable() {
+        Instant now = Instant.now();
+        YearMonth currentMonth = YearMonth.now(ZoneOffset.UTC);
+        insert(1L, currentMonth.minusMonths(3).atDay(10).atStartOfDay().toInstant(ZoneOffset.UTC));
+        insert(2L, now);
+
+        run(manager -> {
+            // start alone does the conversion
+        });
+
+        assertThat(tableKind("audit_logs")).isEqualTo("p");
+        assertThat(partitions()).contains(
+                "audit_logs_default",
+                AuditLogPartitionManager.partitionName(currentMonth.minusMonths(3)),
+                AuditLogPartitionManager.partitionName(currentMonth),
+                AuditLogPartitionManager.partitionName(currentMonth.plusMonths(auditProperties.getPartitionsAhead())));
+        assertThat(jdbcTemplate.queryForObject("select count(*) from audit_logs", Long.class)).isEqualTo(2L);
+        assertThat(jdbcTemplate.queryForList("select indexname from pg_indexes where schemaname = ?"
+                + " and tablename = 'audit_logs'", String.class, schema))
+                .contains("idx_audit_logs_created", "audit_logs_pkey");
+        assertThat(jdbcTemplate.queryForList("select conname from pg_constraint where conrelid = to_regclass(?)"
+                + " and contype = 'f'", String.class, "audit_logs")).containsExactly("fk_audit_logs_actor");
+    }
+
+    @Test
+    @DisplayName("maintain should drop partitions of months past the retention cutoff only")
+    void maintain_dropsExpiredPartitions() {
+        YearMonth currentMonth = YearMonth.now(ZoneOffset.UTC);
+        auditProperties.setRetention(Duration.ofDays(62));
+        insert(1L, currentMonth.minusMonths(5).atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC));
+        insert(2L, Instant.now());
+
+        run(manager -> manager.maintain(Instant.now()));
+
+        assertThat(partitions()).doesNotContain(AuditLogPartitionManager.partitionName(currentMonth.minusMonths(5)))
+                .contains(AuditLogPartitionManager.partitionName(currentMonth));
+        assertThat(jdbcTemplate.queryForList("select id from audit_logs", Long.class)).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("start and maintain should be safe to run again on a partitioned table")
+    void start_isIdempotent() {
+        insert(1L, Instant.now());
+
+        run(manager -> manager.maintain(Instant.now()));
+        List<String> partitions = partitions();
+        run(manager -> manager.maintain(Instant.now()));
+
+        assertThat(tableKind("audit_logs")).isEqualTo("p");
+        assertThat(partitions()).containsExactlyInAnyOrderElementsOf(partitions);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from audit_logs", Long.class)).isEqualTo(1L);
+    }
+
+    private void run(Consumer<AuditLogPartitionManager> action) {
+        AuditLogPartitionManager manager = new AuditLogPartitionManager(auditProperties,
+                mock(AuditLogRepository.class), jdbcTemplate, transactionTemplate);
+        manager.start();
+        try {
+            action.accept(manager);
+        } finally {
+            manager.stop();
+        }
+    }
+
+    private void insert(long id, Instant createdAt) {
+        jdbcTemplate.update("insert into audit_logs (id, action, target_type, target_id, created_at, actor_user_id)"
+                + " values (?, 'REPO_CREATE', 'REPOSITORY', '7', ?, 1)", id, createdAt.atOffset(ZoneOffset.UTC));
+    }
+
+    private String tableKind(String table) {
+        return jdbcTemplate.queryForObject("select relkind::text from pg_class where oid = to_regclass(?)",
+                String.class, table);
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid"
+                + " where i.inhparent = to_regclass('audit_logs')", String.class);
+    }
+
+    private static DriverManagerDataSource dataSource(String schema) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("audit.test.postgres-url"),
+                System.getProperty("audit.test.postgres-user", "postgres"),
+                System.getProperty("audit.test.postgres-password", "postgres"));
+        if (schema != null) {
+            Properties properties = new Properties();
+            properties.setProperty("currentSchema", schema);
+            dataSource.setConnectionProperties(properties);
+        }
+        return dataSource;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.dockerhub_clone.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditLogPartitionManagerTest {
+
+    @Test
+    @DisplayName("createPartitionSql should cover exactly one UTC month")
+    void createPartitionSql_coversOneMonth() {
+        assertThat(AuditLogPartitionManager.createPartitionSql(YearMonth.of(2024, 12))).isEqualTo(
+                "create table if not exists audit_logs_p202412 partition of audit_logs"
+                        + " for values from ('2024-12-01 00:00:00+00') to ('2025-01-01 00:00:00+00')");
+    }
+
+    @Test
+    @DisplayName("expiredPartitions should return only monthly partitions before the cutoff month")
+    void expiredPartitions_keepsCutoffMonthAndDefault() {
+        List<String> partitions = List.of("audit_logs_p202403", "audit_logs_p202404", "audit_logs_p202405",
+                "audit_logs_default", "audit_logs_p2024");
+
+        assertThat(AuditLogPartitionManager.expiredPartitions(partitions, YearMonth.of(2024, 5)))
+                .containsExactly("audit_logs_p202403", "audit_logs_p202404");
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.dockerhub_clone.service;
+
+import com.example.dockerhub_clone.dto.AuditLogPageDto;
+import com.example.dockerhub_clone.model.AuditLog;
+import com.example.dockerhub_clone.model.User;
+import com.example.dockerhub_clone.repository.AuditLogRepository;
+import com.example.dockerhub_clone.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AuditLogQueryServiceTest {
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private AuthService authService;
+
+    @InjectMocks
+    private AuditLogQueryService auditLogQueryService;
+
+    @Test
+    @DisplayName("searchOwn should return a cursor pointing at the last row when more rows follow")
+    void searchOwn_returnsCursorOfLastRow() {
+        User owner = User.builder().id(1L).username("owner").build();
+        when(authService.getCurrentUser()).thenReturn(owner);
+        when(auditLogRepository.findBy(any(Specification.class), any())).thenReturn(List.of(
+                auditLog(12L, "2024-05-01T10:00:02Z", owner),
+                auditLog(11L, "2024-05-01T10:00:01Z", owner),
+                auditLog(10L, "2024-05-01T10:00:00Z", owner)));
+
+        AuditLogPageDto page = auditLogQueryService.searchOwn(null, null, null, null, null, 2);
+
+        assertThat(page.getItems()).extracting("id").containsExactly(12L, 11L);
+        assertThat(page.getItems()).extracting("actorUsername").containsOnly("owner");
+        assertThat(AuditLogQueryService.decodeCursor(page.getNextCursor()))
+                .isEqualTo(new AuditLogQueryService.Cursor(Instant.parse("2024-05-01T10:00:01Z"), 11L));
+    }
+
+    @Test
+    @DisplayName("search should end paging on a short page and reject malformed cursors")
+    void search_lastPageAndInvalidCursor() {
+        when(auditLogRepository.findBy(any(Specification.class), any()))
+                .thenReturn(List.of(auditLog(1L, "2024-05-01T10:00:00Z", null)));
+
+        assertThat(auditLogQueryService.search(null, null, null, null, null, null, null).getNextCursor()).isNull();
+        assertThatThrownBy(() -> auditLogQueryService.search(null, null, null, null, null, "not-a-cursor", null))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Invalid cursor");
+    }
+
+    @Test
+    @DisplayName("search should reject an unknown actor")
+    void search_unknownActor() {
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> auditLogQueryService.search("ghost", null, null, null, null, null, null))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("User not found");
+        verify(auditLogRepository, never()).findBy(any(Specification.class), any());
+    }
+
+    private static AuditLog auditLog(long id, String createdAt, User actor) {
+        return AuditLog.builder()
+                .id(id)
+                .action("REPO_CREATE")
+                .targetType("REPOSITORY")
+                .targetId("7")
+                .actorUser(actor)
+                .createdAt(Instant.parse(createdAt))
+                .build();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.dockerhub_clone.service;
+
+import com.example.dockerhub_clone.analytics.ElasticsearchProperties;
+import com.example.dockerhub_clone.config.AuditProperties;
+import com.example.dockerhub_clone.model.AuditLog;
+import com.example.dockerhub_clone.model.AuditOutboxEntry;
+import com.example.dockerhub_clone.repository.AuditLogRepository;
+import com.example.dockerhub_clone.repository.AuditOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AuditLogWriterTest {
+
+    private final AuditLogRepository auditLogRepository = mock(AuditLogRepository.class);
+    private final AuditOutboxRepository auditOutboxRepository = mock(AuditOutboxRepository.class);
+    private final List<List<String>> insertedBatches = new CopyOnWriteArrayList<>();
+    private final List<String> outboxDocumentIds = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private AuditProperties auditProperties;
+    private AuditLogWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        auditProperties = new AuditProperties();
+        auditProperties.setWriteBehindBatchSize(3);
+        auditProperties.setWriteBehindFlushInterval(Duration.ofMillis(100));
+        ElasticsearchProperties elasticsearchProperties = new ElasticsearchProperties();
+        elasticsearchProperties.setEnabled(true);
+
+        when(auditLogRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<AuditLog> auditLogs = invocation.getArgument(0);
+            if (auditLogs.stream().anyMatch(auditLog -> auditLog.getAction().equals("BAD"))) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            auditLogs.forEach(auditLog -> auditLog.setId(sequence.incrementAndGet()));
+            insertedBatches.add(auditLogs.stream().map(AuditLog::getAction).toList());
+            return auditLogs;
+        });
+        when(auditOutboxRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<AuditOutboxEntry> entries = invocation.getArgument(0);
+            entries.forEach(entry -> outboxDocumentIds.add(entry.getDocumentId()));
+            return entries;
+        });
+        writer = new AuditLogWriter(auditProperties, elasticsearchProperties, auditLogRepository,
+                auditOutboxRepository, new TransactionTemplate(transactionManager));
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.stop();
+    }
+
+    @Test
+    @DisplayName("writeBehind should insert queued audit logs and their outbox entries in batches")
+    void writeBehind_insertsInBatches() throws InterruptedException {
+        for (int i = 1; i <= 4; i++) {
+            writer.writeBehind(auditLog("USER_LOGIN_" + i));
+        }
+
+        awaitOutboxEntries(4);
+
+        assertThat(insertedBatches).containsExactly(
+                List.of("USER_LOGIN_1", "USER_LOGIN_2", "USER_LOGIN_3"), List.of("USER_LOGIN_4"));
+        assertThat(outboxDocumentIds).containsExactly("audit-1", "audit-2", "audit-3", "audit-4");
+    }
+
+    @Test
+    @DisplayName("stop should write audit logs that are still queued")
+    void stop_writesQueuedEntries() throws InterruptedException {
+        writer.writeBehind(auditLog("USER_LOGIN"));
+
+        writer.stop();
+
+        assertThat(insertedBatches).containsExactly(List.of("USER_LOGIN"));
+        assertThat(auditProperties.durabilityOf("USER_LOGIN")).isEqualTo(AuditProperties.Durability.WRITE_BEHIND);
+        assertThat(auditProperties.durabilityOf("REPOSITORY_DELETE")).isEqualTo(AuditProperties.Durability.TRANSACTIONAL);
+    }
+
+    @Test
+    @DisplayName("writeBehind should keep the batch and retry while the database is unavailable")
+    void writeBehind_retriesWhenDatabaseIsDown() throws InterruptedException {
+        when(transactionManager.getTransaction(any()))
+                .thenThrow(new CannotCreateTransactionException("connection refused"))
+                .thenReturn(null);
+
+        writer.writeBehind(auditLog("USER_LOGIN_1"));
+        awaitOutboxEntries(1);
+        writer.writeBehind(auditLog("USER_LOGIN_2"));
+        awaitOutboxEntries(2);
+
+        assertThat(insertedBatches).containsExactly(List.of("USER_LOGIN_1"), List.of("USER_LOGIN_2"));
+    }
+
+    @Test
+    @DisplayName("writeBehind should drop only the row that cannot be written")
+    void writeBehind_dropsOnlyTheBadRow() throws InterruptedException {
+        writer.writeBehind(auditLog("USER_LOGIN_1"));
+        writer.writeBehind(auditLog("BAD"));
+        writer.writeBehind(auditLog("USER_LOGIN_2"));
+        awaitOutboxEntries(2);
+
+        assertThat(insertedBatches).containsExactly(List.of("USER_LOGIN_1"), List.of("USER_LOGIN_2"));
+        assertThat(outboxDocumentIds).containsExactly("audit-1", "audit-2");
+    }
+
+    private void awaitOutboxEntries(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (outboxDocumentIds.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static AuditLog auditLog(String action) {
+        return AuditLog.builder()
+                .action(action)
+                .targetType("USER")
+                .targetId("1")
+                .createdAt(Instant.parse("2024-05-01T10:00:00Z"))
+                .build();
+    }
+}
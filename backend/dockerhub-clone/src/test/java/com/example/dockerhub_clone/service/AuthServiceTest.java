@@ -0,0 +1,99 @@
+package com.example.dockerhub_clone.service;
+
+import com.example.dockerhub_clone.dto.LoginResponseDto;
+import com.example.dockerhub_clone.model.Role;
+import com.example.dockerhub_clone.model.RoleName;
+import com.example.dockerhub_clone.model.User;
+import com.example.dockerhub_clone.model.UserRole;
+import com.example.dockerhub_clone.repository.RoleRepository;
+import com.example.dockerhub_clone.repository.UserRepository;
+import com.example.dockerhub_clone.repository.UserRoleRepository;
+import com.example.dockerhub_clone.security.JwtUtil;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private RoleRepository roleRepository;
+    @Mock
+    private UserRoleRepository userRoleRepository;
+    @Mock
+    private PasswordEncoder passwordEncoder;
+    @Mock
+    private JwtUtil jwtUtil;
+    @Mock
+    private AuditLogService auditLogService;
+
+    @InjectMocks
+    private AuthService authService;
+
+    @Test
+    @DisplayName("register should save the user with the default role and record the audit log in one transaction")
+    void register_savesUserAndRecordsAuditLog() throws NoSuchMethodException {
+        when(passwordEncoder.encode("secret")).thenReturn("hashed");
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            user.setId(7L);
+            return user;
+        });
+        Role role = Role.builder().name(RoleName.ROLE_USER).build();
+        when(roleRepository.findByName(RoleName.ROLE_USER)).thenReturn(Optional.of(role));
+
+        authService.register("alice", "alice@example.com", "secret");
+
+        ArgumentCaptor<User> saved = ArgumentCaptor.forClass(User.class);
+        verify(userRepository).save(saved.capture());
+        assertThat(saved.getValue().getPasswordHash()).isEqualTo("hashed");
+        verify(userRoleRepository).save(any(UserRole.class));
+        verify(auditLogService).recordAction(eq(saved.getValue()), eq("USER_REGISTER"), eq("USER"), eq("7"), anyMap());
+        assertThat(AuthService.class.getMethod("register", String.class, String.class, String.class)
+                .isAnnotationPresent(Transactional.class)).isTrue();
+    }
+
+    @Test
+    @DisplayName("login should issue a token and record the login, and reject a wrong password without auditing")
+    void login_issuesTokenOrRejects() {
+        User user = User.builder()
+                .id(3L)
+                .username("alice")
+                .passwordHash("hashed")
+                .active(true)
+                .roles(Set.of(UserRole.builder().role(Role.builder().name(RoleName.ROLE_USER).build()).build()))
+                .build();
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("secret", "hashed")).thenReturn(true);
+        when(jwtUtil.generateToken("alice")).thenReturn("token");
+
+        LoginResponseDto response = authService.login("alice", "secret");
+
+        assertThat(response.getToken()).isEqualTo("token");
+        assertThat(response.getUser().getRoles()).containsExactly("USER");
+        verify(auditLogService).recordAction(eq(user), eq("USER_LOGIN"), eq("USER"), eq("3"), anyMap());
+
+        assertThatThrownBy(() -> authService.login("alice", "wrong"))
+                .hasMessage("Invalid credentials");
+        verify(auditLogService, times(1)).recordAction(any(), anyString(), anyString(), anyString(), anyMap());
+    }
+}